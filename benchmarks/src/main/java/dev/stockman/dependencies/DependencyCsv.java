@@ -0,0 +1,29 @@
+package dev.stockman.dependencies;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+// Reads the project,groupId,artifactId,version,packageType,scope lines written by the collector all at once and sorts
+// them in memory. The report streams them with DependencyRuns, this is the baseline it is measured against.
+public final class DependencyCsv {
+    private DependencyCsv() {}
+
+    // Distinct dependencies of the projects not matching projectsToIgnore, sorted in Dependency order
+    public static List<DependencyRaw> read(Path file, Pattern projectsToIgnore, CoordinateDictionary dictionary) throws IOException {
+        return new ArrayList<>(Files.readAllLines(file).stream()
+                .distinct()
+                .filter(line -> !line.isBlank())
+                .map(line -> {
+                    String[] parts = line.split(",");
+                    return new DependencyRaw(dictionary.dependency(parts[1], parts[2], parts[3], parts[4], parts[5]), dictionary.project(parts[0]));
+                })
+                .filter(dependencyRaw -> !projectsToIgnore.matcher(dependencyRaw.project()).matches())
+                .sorted()
+                .toList()
+        );
+    }
+}
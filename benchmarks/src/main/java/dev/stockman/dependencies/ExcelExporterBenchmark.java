@@ -0,0 +1,74 @@
+package dev.stockman.dependencies;
+
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Each sheet writer of ExcelExporter on its own, including the write of the finished package, and the whole export
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ExcelExporterBenchmark {
+    private static final int ROW_ACCESS_WINDOW = 100;
+
+    private final ExcelExporter exporter = new ExcelExporter(ROW_ACCESS_WINDOW);
+
+    @Benchmark
+    public void byScope(FleetState fleet) throws IOException {
+        render(workbook -> exporter.createByScope(workbook, fleet.rollups.byScope(), fleet.rollups.projects()));
+    }
+
+    @Benchmark
+    public void byVersion(FleetState fleet) throws IOException {
+        render(workbook -> exporter.createByVersion(workbook, fleet.rollups.byVersion(), fleet.rollups.projects()));
+    }
+
+    @Benchmark
+    public void byArtifact(FleetState fleet) throws IOException {
+        render(workbook -> exporter.createByArtifact(workbook, fleet.rollups.byArtifact(), fleet.rollups.projects()));
+    }
+
+    @Benchmark
+    public void vulnerabilities(FleetState fleet) throws IOException {
+        render(workbook -> fleet.vulnerabilitiesBySeverity.forEach((severity, vulnerabilities) -> exporter.addVulnerabilities(workbook, severity, vulnerabilities)));
+    }
+
+    @Benchmark
+    public void exportToExcel(FleetState fleet) throws IOException {
+        Path report = Files.createTempFile(fleet.directory, "report", ".xlsx");
+        try {
+            // exportToExcel consumes the severity lists it writes
+            exporter.exportToExcel(fleet.rollups, new HashMap<>(fleet.vulnerabilitiesBySeverity), report.toString());
+        } finally {
+            Files.deleteIfExists(report);
+        }
+    }
+
+    private static void render(Consumer<SXSSFWorkbook> sheets) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try (workbook) {
+            sheets.accept(workbook);
+            workbook.write(OutputStream.nullOutputStream());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package dev.stockman.dependencies;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+// Writes a synthetic fleet in the collector's output formats: a dependency CSV of `projects` projects using
+// `dependencies` dependencies each, and one OWASP report per project over `vulnerabilities` distinct CVEs.
+// The same seed always produces the same fleet.
+public final class FleetGenerator {
+    private static final String[] SCOPES = {"compile", "compile", "compile", "compile", "compile", "compile", "test", "test", "runtime", "provided"};
+    private static final String[] SEVERITIES = {"CRITICAL", "HIGH", "MEDIUM", "LOW"};
+    private static final int VERSIONS_PER_ARTIFACT = 4;
+
+    public record Fleet(Path dependencies, Path owasp) {
+    }
+
+    private record Finding(String name, String severity, String cvssv3Score, String description) {
+    }
+
+    private FleetGenerator() {}
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args[0]);
+        Files.createDirectories(directory);
+        Fleet fleet = generate(directory, Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]), 42);
+        System.out.println("Generated " + fleet.dependencies() + " and " + fleet.owasp());
+    }
+
+    public static Fleet generate(Path directory, int projects, int dependencies, int vulnerabilities, long seed) throws IOException {
+        Random random = new Random(seed);
+        int artifacts = Math.max(dependencies * 2, 10);
+        List<Dependency> pool = new ArrayList<>();
+        for (int i = 0; i < artifacts; i++) {
+            for (int v = 0; v < VERSIONS_PER_ARTIFACT; v++) {
+                pool.add(new Dependency("org.example.group" + (i % 50), "artifact-" + i, "1." + v + "." + random.nextInt(20), "jar", null));
+            }
+        }
+        List<List<Finding>> findings = new ArrayList<>();
+        for (int i = 0; i < pool.size(); i++) {
+            findings.add(new ArrayList<>());
+        }
+        for (int i = 0; i < vulnerabilities; i++) {
+            int severity = random.nextInt(SEVERITIES.length);
+            String score = (10 - severity * 2) + "." + random.nextInt(10);
+            findings.get(random.nextInt(pool.size())).add(new Finding("CVE-2024-" + (10000 + i), SEVERITIES[severity], score, description(random, i)));
+        }
+
+        Fleet fleet = new Fleet(directory.resolve("dependency-report.csv"), directory.resolve("owasp-raw.txt"));
+        JsonFactory factory = new JsonFactory();
+        try (BufferedWriter csv = Files.newBufferedWriter(fleet.dependencies(), StandardCharsets.UTF_8);
+             BufferedWriter owasp = Files.newBufferedWriter(fleet.owasp(), StandardCharsets.UTF_8)) {
+            for (int p = 0; p < projects; p++) {
+                String project = "project-" + p;
+                Set<Integer> used = new LinkedHashSet<>();
+                while (used.size() < Math.min(dependencies, artifacts)) {
+                    used.add(random.nextInt(artifacts));
+                }
+                StringWriter report = new StringWriter();
+                try (JsonGenerator json = factory.createGenerator(report)) {
+                    json.writeStartObject();
+                    json.writeStringField("reportSchema", "1.1");
+                    json.writeArrayFieldStart("dependencies");
+                    for (int artifact : used) {
+                        int index = artifact * VERSIONS_PER_ARTIFACT + random.nextInt(VERSIONS_PER_ARTIFACT);
+                        Dependency dependency = pool.get(index);
+                        csv.write(String.join(",", project, dependency.groupId(), dependency.artifactId(), dependency.version(), dependency.packageType(), SCOPES[random.nextInt(SCOPES.length)]));
+                        csv.newLine();
+                        json.writeStartObject();
+                        json.writeBooleanField("isVirtual", false);
+                        json.writeStringField("fileName", dependency.fileName());
+                        json.writeStringField("sha1", Integer.toHexString(dependency.hashCode()));
+                        if (!findings.get(index).isEmpty()) {
+                            json.writeArrayFieldStart("vulnerabilities");
+                            for (Finding finding : findings.get(index)) {
+                                json.writeStartObject();
+                                json.writeStringField("source", "NVD");
+                                json.writeStringField("name", finding.name());
+                                json.writeStringField("severity", finding.severity());
+                                json.writeObjectFieldStart("cvssv3");
+                                json.writeNumberField("baseScore", Double.parseDouble(finding.cvssv3Score()));
+                                json.writeEndObject();
+                                json.writeStringField("description", finding.description());
+                                json.writeEndObject();
+                            }
+                            json.writeEndArray();
+                        }
+                        json.writeEndObject();
+                    }
+                    json.writeEndArray();
+                    json.writeEndObject();
+                }
+                owasp.write(report.toString());
+                owasp.newLine();
+            }
+        }
+        return fleet;
+    }
+
+    // Several hundred characters with the tabs, newlines and runs of spaces real NVD descriptions carry
+    private static String description(Random random, int vulnerability) {
+        StringBuilder description = new StringBuilder("Vulnerability " + vulnerability + " allows");
+        for (int i = 0; i < 60; i++) {
+            description.append(switch (random.nextInt(8)) {
+                case 0 -> "\n";
+                case 1 -> "\t ";
+                case 2 -> "   ";
+                default -> " ";
+            });
+            description.append("word").append(random.nextInt(1000));
+        }
+        return description.append('.').toString();
+    }
+}
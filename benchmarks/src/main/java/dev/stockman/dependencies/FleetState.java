@@ -0,0 +1,69 @@
+package dev.stockman.dependencies;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// A generated fleet shared by the benchmarks, together with the parsed inputs of each stage
+@State(Scope.Benchmark)
+public class FleetState {
+    static final Pattern PROJECTS_TO_IGNORE = Pattern.compile("^$|^(dependency-report)$");
+
+    @Param({"10", "100", "1000"})
+    public int projects;
+
+    @Param({"200"})
+    public int dependencies;
+
+    @Param({"500"})
+    public int vulnerabilities;
+
+    Path directory;
+    FleetGenerator.Fleet fleet;
+    List<DependencyRaw> dependencyRaws;
+    Rollups rollups;
+    List<Vulnerability> vulnerabilityList;
+    Map<String, List<Vulnerability>> vulnerabilitiesBySeverity;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("fleet");
+        fleet = FleetGenerator.generate(directory, projects, dependencies, vulnerabilities, 42);
+        dependencyRaws = DependencyCsv.read(fleet.dependencies(), PROJECTS_TO_IGNORE, new CoordinateDictionary());
+        rollups = DependencyRollup.rollup(dependencyRaws);
+        Set<Vulnerability> distinct = new HashSet<>();
+        try (InputStream input = Files.newInputStream(fleet.owasp())) {
+            OwaspTransformer.stream(input, distinct::add);
+        }
+        vulnerabilityList = new ArrayList<>(distinct);
+        vulnerabilitiesBySeverity = distinct.stream()
+                .sorted()
+                .collect(Collectors.groupingBy(Vulnerability::severity));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
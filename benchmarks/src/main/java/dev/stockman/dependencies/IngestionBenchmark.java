@@ -0,0 +1,55 @@
+package dev.stockman.dependencies;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Parsing the collector's outputs and building the project matrix
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class IngestionBenchmark {
+
+    @Benchmark
+    public List<DependencyRaw> parseDependencyCsv(FleetState fleet) throws IOException {
+        return DependencyCsv.read(fleet.fleet.dependencies(), FleetState.PROJECTS_TO_IGNORE, new CoordinateDictionary());
+    }
+
+    @Benchmark
+    public long parseDependencyCsvMapped(FleetState fleet) throws IOException {
+        try (DependencyRuns dependencies = DependencyRuns.sort(fleet.fleet.dependencies(), FleetState.PROJECTS_TO_IGNORE, new CoordinateDictionary(), Integer.MAX_VALUE)) {
+            while (dependencies.hasNext()) {
+                dependencies.next();
+            }
+            return dependencies.streamed();
+        }
+    }
+
+    @Benchmark
+    public Set<Vulnerability> parseOwasp(FleetState fleet) throws IOException {
+        Set<Vulnerability> vulnerabilities = new HashSet<>();
+        try (InputStream input = Files.newInputStream(fleet.fleet.owasp())) {
+            OwaspTransformer.stream(input, vulnerabilities::add);
+        }
+        return vulnerabilities;
+    }
+
+    @Benchmark
+    public Rollups rollup(FleetState fleet) {
+        return DependencyRollup.rollup(fleet.dependencyRaws);
+    }
+}
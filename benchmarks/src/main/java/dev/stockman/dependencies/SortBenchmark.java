@@ -0,0 +1,56 @@
+package dev.stockman.dependencies;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Dependency.compareTo and Vulnerability.compareTo through sorts of shuffled inputs
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SortBenchmark {
+    private Dependency[] dependencies;
+    private Vulnerability[] vulnerabilities;
+
+    @Setup(Level.Trial)
+    public void setUp(FleetState fleet) {
+        List<Dependency> shuffledDependencies = new ArrayList<>(fleet.dependencyRaws.stream().map(DependencyRaw::dependency).toList());
+        Collections.shuffle(shuffledDependencies, new Random(42));
+        dependencies = shuffledDependencies.toArray(Dependency[]::new);
+        List<Vulnerability> shuffledVulnerabilities = new ArrayList<>(fleet.vulnerabilityList);
+        Collections.shuffle(shuffledVulnerabilities, new Random(42));
+        vulnerabilities = shuffledVulnerabilities.toArray(Vulnerability[]::new);
+    }
+
+    @Benchmark
+    public Dependency[] sortDependencies() {
+        Dependency[] sorted = dependencies.clone();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    @Benchmark
+    public Vulnerability[] sortVulnerabilities() {
+        Vulnerability[] sorted = vulnerabilities.clone();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+}
@@ -15,76 +15,23 @@ REPORT_FILE_XLSX=$PROJECTS_DIR/dependency-report.xlsx
 # Raw OWASP report file
 OWASP_REPORT_RAW_FILE=$PROJECTS_DIR/owasp-raw.txt
 
-# List of projects to ignore
-IGNORE_PROJECTS=("dependency-report")
-
-# Initialize the report files
-echo > $REPORT_FILE
-echo > $OWASP_REPORT_RAW_FILE
-
-# Function to generate a dependency report for a single Maven project
-generate_dependency_report() {
-  local project_dir=$1
-  local project_name=$(basename $project_dir)
-
-  echo "Processing project: $project_name"
-
-  # Run the Maven dependency list command and filter the output to get only dependency items
-  dependencies=$(mvn -f $project_dir/pom.xml dependency:list | grep -E '^\[INFO\]    [^:]+:[^:]+:[^:]+:[^:]+(:[^:]+)?$')
-
-  # Iterate over each line of dependencies
-  echo "$dependencies" | while read -r line; do
-    dependency=$(echo "$line" | awk '{print $2}')
-    # Extract the group id, artifact id, and version using awk
-    groupId=$(echo "$dependency" | awk -F':' '{print $1}')
-    artifactId=$(echo "$dependency" | awk -F':' '{print $2}')
-    package=$(echo "$dependency" | awk -F':' '{print $3}')
-    version=$(echo "$dependency" | awk -F':' '{print $4}')
-    scope=$(echo "$dependency" | awk -F':' '{print $5}')
-
-    # Print or use the variables as needed
-    echo "$project_name,$groupId,$artifactId,$version,$package,$scope" >> $REPORT_FILE
-  done
-}
-
-generate_vulnerability_report() {
-  local project_dir=$1
-  local project_name=$(basename $project_dir)
-
-  echo "Processing project: $project_name"
-
-  # Run the Maven dependency check report
-  mvn -f $project_dir/pom.xml org.owasp:dependency-check-maven:check -Dformat=JSON -q
-
-  # Find all `dependency-check-report.json` files generated by modules
-  find -L "$project_dir" -type f -name dependency-check-report.json | while read -r dependency_check_file; do
-    echo "Appending vulnerability report: $dependency_check_file"
-    cat $dependency_check_file >> $OWASP_REPORT_RAW_FILE
-    echo >> "$OWASP_REPORT_RAW_FILE"
-  done
-}
-
-# Iterate through each Maven project directory and generate the report
-for project_dir in $PROJECTS_DIR/*; do
-  if [ -d "$project_dir" ]; then
-    project_name=$(basename $project_dir)
-    if [[ ! " ${IGNORE_PROJECTS[@]} " =~ " ${project_name} " ]]; then
-      if [ -f "$project_dir/pom.xml" ]; then
-        generate_dependency_report $project_dir
-        generate_vulnerability_report $project_dir
-      else
-        echo "Skipping directory without pom.xml: $project_name"
-      fi
-    else
-      echo "Ignoring project: $project_name"
-    fi
-  fi
-done
+# Collect the dependencies and OWASP findings of every Maven project. Projects to skip are listed in projects.ignore
+# of application.yaml, projects whose pom.xml files did not change since the last run are served from the cache.
+mvn spring-boot:run -Dworkspace="$PROJECTS_DIR" -Ddependencies="$REPORT_FILE" -Dowasp="$OWASP_REPORT_RAW_FILE" -q -f $SCRIPT_DIR/pom.xml -P collect
 
 echo "Dependency CSV report generated: $REPORT_FILE"
 
 echo "Generating final output report..."
 
-mvn spring-boot:run -Ddependencies="$REPORT_FILE" -Dowasp="$OWASP_REPORT_RAW_FILE" -Dreport="$REPORT_FILE_XLSX" -q -f $SCRIPT_DIR/pom.xml -P report
+# The report runs through the plain Cli entrypoint, without a Spring context, from the boot jar extracted into
+# target/extracted. The jar is rebuilt when a source changed. The first run records the loaded classes into an AppCDS
+# archive next to it and later runs map that archive, which is recreated whenever the jar changes.
+REPORT_JAR=$SCRIPT_DIR/target/extracted/dependency-report.jar
+if [[ ! -f $REPORT_JAR || -n $(find $SCRIPT_DIR/pom.xml $SCRIPT_DIR/src -newer $REPORT_JAR) ]]; then
+  mvn package -Ddependencies="$REPORT_FILE" -Dowasp="$OWASP_REPORT_RAW_FILE" -Dreport="$REPORT_FILE_XLSX" -DskipTests -q -f $SCRIPT_DIR/pom.xml -P report
+  java -Djarmode=tools -jar $SCRIPT_DIR/target/dependency-report.jar extract --force --destination $SCRIPT_DIR/target/extracted
+fi
+
+java -Xlog:cds=off -XX:+AutoCreateSharedArchive -XX:SharedArchiveFile=$SCRIPT_DIR/target/extracted/report.jsa -cp $REPORT_JAR dev.stockman.dependencies.Cli "$REPORT_FILE" "$OWASP_REPORT_RAW_FILE" "$REPORT_FILE_XLSX"
 
 echo "Dependency XLSX report generated: $REPORT_FILE_XLSX"
@@ -5,14 +5,12 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
-import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 @SpringBootApplication
 public class Application implements CommandLineRunner {
@@ -20,71 +18,116 @@ public class Application implements CommandLineRunner {
     @Value("${projects.ignore}")
     private String projectsToIgnore;
 
+    @Value("${report.ingest.chunk-lines}")
+    private int ingestChunkLines;
+
+    @Value("${report.format}")
+    private String reportFormat;
+
+    @Value("${report.excel.row-window}")
+    private int excelRowWindow;
+
+    @Value("${report.metrics.prometheus}")
+    private boolean metricsPrometheus;
+
+    @Value("${serve.port}")
+    private int servePort;
+
+    @Value("${serve.dependencies}")
+    private String serveDependencies;
+
+    @Value("${serve.owasp}")
+    private String serveOwasp;
+
+    @Value("${collector.maven}")
+    private String mavenExecutable;
+
+    @Value("${collector.concurrency}")
+    private int collectorConcurrency;
+
+    @Value("${collector.owasp-concurrency}")
+    private int collectorOwaspConcurrency;
+
+    @Value("${collector.owasp-mode}")
+    private String collectorOwaspMode;
+
+    @Value("${collector.cache.directory}")
+    private String collectorCacheDirectory;
+
+    @Value("${collector.cache.max-age}")
+    private Duration collectorCacheMaxAge;
+
+    @Value("${collector.cache.findings-max-age}")
+    private Duration collectorCacheFindingsMaxAge;
+
+    @Value("${collector.shard}")
+    private String collectorShard;
+
     public static void main(String[] args) {
         SpringApplication.run(Application.class, args);
     }
 
     @Override
     public void run(String... args) throws Exception {
-        if (args.length > 0) {
-            String sourceFile = args[0];
-            String owaspFile = args[1];
-            String outputFile = args[2];
-            Pattern pattern = Pattern.compile(projectsToIgnore);
-            Map<String, List<Vulnerability>> vulnerabilities = new HashMap<>(Files.readAllLines(Paths.get(owaspFile)).stream()
-                    .distinct()
-                    .filter(line -> !line.isBlank())
-                    .map(OwaspTransformer.TO_JSON)
-                    .map(OwaspTransformer.EXTRACT_CVE)
-                    .map(OwaspTransformer.TRANSFORM)
-                    .flatMap(List::stream)
-                    .distinct()
-                    .collect(Collectors.groupingBy(Vulnerability::severity,
-                            Collectors.mapping(v -> v, Collectors.collectingAndThen(
-                                    Collectors.toList(), list -> {
-                                        list.sort(null); // Sort the list using natural order
-                                        return list;
-                                    }
-                            ))
-                    ))
-            );
-            List<DependencyRaw> dependencies = new ArrayList<>(Files.readAllLines(Paths.get(sourceFile)).stream()
-                    .distinct()
-                    .filter(line -> !line.isBlank())
-                    .map(line -> {
-                        String[] parts = line.split(",");
-                        return new DependencyRaw(new Dependency(parts[1], parts[2], parts[3], parts[4], parts[5]), parts[0]);
-                    })
-                    .filter(dependencyRaw -> !pattern.matcher(dependencyRaw.project()).matches())
-                    .sorted()
-                    .toList()
-            );
-            List<String> projects = new ArrayList<>(dependencies.stream()
-                    .map(DependencyRaw::project)
-                    .distinct()
-                    .toList()
-            );
-            Map<String, Integer> projectsPosition  = new HashMap<>();
-            for (int i = 0; i < projects.size(); i++) {
-                projectsPosition.put(projects.get(i), i);
-            }
-            Map<Dependency, boolean[]> matrix = new HashMap<>();
-            dependencies.forEach(raw -> {
-               if (matrix.containsKey(raw.dependency())) {
-                   var item = matrix.get(raw.dependency());
-                   item[projectsPosition.get(raw.project())] = true;
-               } else {
-                   boolean[] item = new boolean[projects.size()];
-                   item[projectsPosition.get(raw.project())] = true;
-                   matrix.put(raw.dependency(), item);
-               }
-            });
-            List<DependencyRow> rows = new ArrayList<>(matrix.entrySet().stream().map(entry -> new DependencyRow(entry.getKey(), entry.getValue())).sorted().toList());
-            ExcelExporter excelExporter = new ExcelExporter();
-            excelExporter.exportToExcel(rows, projects, vulnerabilities, outputFile);
+        if (args.length > 0 && "collect".equals(args[0])) {
+            DependencyCollector collector = new DependencyCollector(Pattern.compile(projectsToIgnore), mavenExecutable, collectorConcurrency, collectorOwaspConcurrency, collectorCacheDirectory, collectorCacheMaxAge, collectorCacheFindingsMaxAge,
+                    "batch".equals(collectorOwaspMode) ? new MavenArtifactScanner(mavenExecutable) : null, collectorShard);
+            collector.collect(Paths.get(args[1]), Paths.get(args[2]), args.length > 3 ? Paths.get(args[3]) : null);
+        } else if (args.length > 0 && "serve".equals(args[0])) {
+            Path workspace = Paths.get(args[1]);
+            DependencyServer server = new DependencyServer(new ReportGenerator(Pattern.compile(projectsToIgnore), ingestChunkLines, reportFormat, excelRowWindow, metricsPrometheus),
+                    workspace.resolve(serveDependencies), workspace.resolve(serveOwasp), servePort);
+            server.serve();
+        } else if (args.length > 0 && "watch".equals(args[0])) {
+            Path workspace = Paths.get(args[1]);
+            IncrementalReport report = new IncrementalReport(new CollectionCache(workspace.resolve(collectorCacheDirectory), collectorCacheMaxAge, collectorCacheFindingsMaxAge), workspace, Pattern.compile(projectsToIgnore),
+                    new ReportGenerator(Pattern.compile(projectsToIgnore), ingestChunkLines, reportFormat, excelRowWindow, metricsPrometheus), Paths.get(args[2]));
+            report.watch();
+        } else if (args.length > 0 && "diff".equals(args[0])) {
+            SnapshotDiff.diff(Paths.get(args[1]), Paths.get(args[2]), Paths.get(args[3]));
+        } else if (args.length > 0 && "shard".equals(args[0])) {
+            Shard.collect(Paths.get(args[1]), Paths.get(args[2]), Pattern.compile(projectsToIgnore), ingestChunkLines).write(Paths.get(args[3]));
+        } else if (args.length > 0 && "merge".equals(args[0])) {
+            merge(args);
+        } else if (args.length > 0) {
+            report(args[0], args[1], args[2]);
+        } else {
+            usage();
+        }
+    }
+
+    private static void usage() {
+        System.out.println("Please provide the path to the source file as an argument.");
+        System.out.println("mvn spring-boot:run -Ddependencies=\"/path/to/dependency-report.csv\" -Dreport=\"/path/to/dependency-report.xlsx\"");
+        System.out.println("mvn spring-boot:run -Dworkspace=\"/path/to/workspace\" -Ddependencies=\"/path/to/dependency-report.csv\" -Dowasp=\"/path/to/owasp-raw.txt\" -P collect");
+        System.out.println("mvn spring-boot:run -Dspring-boot.run.arguments=\"serve /path/to/workspace\"");
+        System.out.println("mvn spring-boot:run -Dspring-boot.run.arguments=\"watch /path/to/workspace /path/to/dependency-report.xlsx\"");
+        System.out.println("mvn spring-boot:run -Dspring-boot.run.arguments=\"diff /path/to/yesterday.snapshot /path/to/today.snapshot /path/to/changes.json\"");
+        System.out.println("mvn spring-boot:run -Dspring-boot.run.arguments=\"shard /path/to/dependency-report.csv /path/to/owasp-raw.txt /path/to/agent-1.shard\"");
+        System.out.println("mvn spring-boot:run -Dspring-boot.run.arguments=\"merge /path/to/fleet.shard /path/to/agent-1.shard /path/to/agent-2.shard ...\"");
+        System.out.println("mvn spring-boot:run -Dspring-boot.run.arguments=\"merge /path/to/dependency-report.csv /path/to/owasp-raw.txt /path/to/agent-1.shard /path/to/agent-2.shard ...\"");
+    }
+
+    // merge <output.shard> <shard>... writes the merged shard, merge <dependencies.csv> <owasp.txt> <shard>... the
+    // report inputs of the merged shards
+    private void merge(String... args) throws Exception {
+        boolean toShard = args.length > 1 && args[1].endsWith(Shard.SUFFIX);
+        int firstShard = toShard ? 2 : 3;
+        if (args.length <= firstShard) {
+            usage();
+            return;
+        }
+        List<Path> shards = Arrays.stream(args, firstShard, args.length).map(Paths::get).toList();
+        Shard merged = Shard.merge(shards);
+        if (toShard) {
+            merged.write(Paths.get(args[1]));
         } else {
-            System.out.println("Please provide the path to the source file as an argument.");
-            System.out.println("mvn spring-boot:run -Ddependencies=\"/path/to/dependency-report.csv\" -Dreport=\"/path/to/dependency-report.xlsx\"");
+            merged.writeReportInputs(Paths.get(args[1]), Paths.get(args[2]));
         }
     }
+
+    private void report(String sourceFile, String owaspFile, String outputFile) throws Exception {
+        ReportGenerator generator = new ReportGenerator(Pattern.compile(projectsToIgnore), ingestChunkLines, reportFormat, excelRowWindow, metricsPrometheus);
+        generator.generate(Paths.get(sourceFile), Paths.get(owaspFile), Paths.get(outputFile));
+    }
 }
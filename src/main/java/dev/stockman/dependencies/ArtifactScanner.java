@@ -0,0 +1,15 @@
+package dev.stockman.dependencies;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+// Scans a set of artifacts for known vulnerabilities, each artifact once no matter how many projects use it
+public interface ArtifactScanner {
+    // The dependency-check JSON reports covering the artifacts scanned, and the artifacts whose scan failed
+    record Result(List<String> reports, Set<Dependency> failed) {}
+
+    // A failing scan is reported and its artifacts returned as failed, the other artifacts are still scanned
+    Result scan(Collection<Dependency> artifacts) throws IOException, InterruptedException;
+}
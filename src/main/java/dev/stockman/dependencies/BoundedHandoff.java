@@ -0,0 +1,108 @@
+package dev.stockman.dependencies;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Iterates over a source on its own thread: the elements are handed over in batches through a bounded queue, so the
+// consumer works on one batch while the next ones are produced, and the producer blocks when the consumer falls behind
+final class BoundedHandoff<T> implements Iterator<T>, Closeable {
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object> queue;
+    private final Thread producer;
+    private List<T> batch = List.of();
+    private int position;
+    private boolean ended;
+
+    private BoundedHandoff(Iterator<T> source, int batchSize, int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.producer = Thread.ofPlatform().name("report-handoff").start(() -> produce(source, batchSize));
+    }
+
+    static <T> BoundedHandoff<T> start(Iterator<T> source, int batchSize, int capacity) {
+        return new BoundedHandoff<>(source, batchSize, capacity);
+    }
+
+    private void produce(Iterator<T> source, int batchSize) {
+        try {
+            try {
+                List<T> next = new ArrayList<>(batchSize);
+                while (source.hasNext()) {
+                    next.add(source.next());
+                    if (next.size() == batchSize) {
+                        queue.put(next);
+                        next = new ArrayList<>(batchSize);
+                    }
+                }
+                if (!next.isEmpty()) {
+                    queue.put(next);
+                }
+                queue.put(END);
+            } catch (RuntimeException | Error e) {
+                queue.put(e);
+            }
+        } catch (InterruptedException e) {
+            // Closed by the consumer
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (position < batch.size()) {
+            return true;
+        }
+        if (ended) {
+            return false;
+        }
+        Object next;
+        try {
+            next = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for " + producer.getName()));
+        }
+        if (next == END) {
+            ended = true;
+            return false;
+        }
+        if (next instanceof RuntimeException e) {
+            throw e;
+        }
+        if (next instanceof Error e) {
+            throw e;
+        }
+        @SuppressWarnings("unchecked")
+        List<T> elements = (List<T>) next;
+        batch = elements;
+        position = 0;
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return batch.get(position++);
+    }
+
+    // Stops the producer if the consumer gave up early, and waits for it so the source can be closed next
+    @Override
+    public void close() throws IOException {
+        producer.interrupt();
+        try {
+            producer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while stopping " + producer.getName());
+        }
+    }
+}
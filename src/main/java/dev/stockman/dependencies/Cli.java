@@ -0,0 +1,89 @@
+package dev.stockman.dependencies;
+
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// Fast-start entrypoint for the report, without a Spring context. Settings are read from --name=value arguments,
+// then from the environment with the names Spring binds them from (PROJECTS_IGNORE, REPORT_INGEST_CHUNK_LINES,
+// REPORT_FORMAT, REPORT_EXCEL_ROW_WINDOW, REPORT_METRICS_PROMETHEUS), then from application.yaml.
+public final class Cli {
+    private Cli() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 4 && "diff".equals(args[0])) {
+            SnapshotDiff.diff(Paths.get(args[1]), Paths.get(args[2]), Paths.get(args[3]));
+            return;
+        }
+        if (args.length > 0 && "merge".equals(args[0])) {
+            boolean toShard = args.length > 1 && args[1].endsWith(Shard.SUFFIX);
+            int firstShard = toShard ? 2 : 3;
+            if (args.length <= firstShard) {
+                usage();
+            }
+            Shard merged = Shard.merge(Arrays.stream(args, firstShard, args.length).map(Paths::get).toList());
+            if (toShard) {
+                merged.write(Paths.get(args[1]));
+            } else {
+                merged.writeReportInputs(Paths.get(args[1]), Paths.get(args[2]));
+            }
+            return;
+        }
+        String[] files = new String[3];
+        int count = 0;
+        String projectsIgnore = null;
+        String ingestChunkLines = null;
+        String reportFormat = null;
+        String excelRowWindow = null;
+        String metricsPrometheus = null;
+        for (String arg : args) {
+            if (arg.startsWith("--projects.ignore=")) {
+                projectsIgnore = arg.substring("--projects.ignore=".length());
+            } else if (arg.startsWith("--report.ingest.chunk-lines=")) {
+                ingestChunkLines = arg.substring("--report.ingest.chunk-lines=".length());
+            } else if (arg.startsWith("--report.format=")) {
+                reportFormat = arg.substring("--report.format=".length());
+            } else if (arg.startsWith("--report.excel.row-window=")) {
+                excelRowWindow = arg.substring("--report.excel.row-window=".length());
+            } else if (arg.startsWith("--report.metrics.prometheus=")) {
+                metricsPrometheus = arg.substring("--report.metrics.prometheus=".length());
+            } else if (count < files.length) {
+                files[count++] = arg;
+            }
+        }
+        if (count < files.length) {
+            usage();
+        }
+
+        Map<String, Object> defaults;
+        try (InputStream input = Cli.class.getResourceAsStream("/application.yaml")) {
+            defaults = new Yaml().load(input);
+        }
+        ReportGenerator generator = new ReportGenerator(
+                Pattern.compile(setting(projectsIgnore, "PROJECTS_IGNORE", defaults.get("projects.ignore"))),
+                Integer.parseInt(setting(ingestChunkLines, "REPORT_INGEST_CHUNK_LINES", defaults.get("report.ingest.chunk-lines"))),
+                setting(reportFormat, "REPORT_FORMAT", defaults.get("report.format")),
+                Integer.parseInt(setting(excelRowWindow, "REPORT_EXCEL_ROW_WINDOW", defaults.get("report.excel.row-window"))),
+                Boolean.parseBoolean(setting(metricsPrometheus, "REPORT_METRICS_PROMETHEUS", defaults.get("report.metrics.prometheus"))));
+        generator.generate(Paths.get(files[0]), Paths.get(files[1]), Paths.get(files[2]));
+    }
+
+    private static void usage() {
+        System.out.println("java -cp <classpath> dev.stockman.dependencies.Cli /path/to/dependency-report.csv /path/to/owasp-raw.txt /path/to/dependency-report.xlsx [--projects.ignore=regex] [--report.ingest.chunk-lines=lines] [--report.format=xlsx|csv|jsonl|html] [--report.excel.row-window=rows] [--report.metrics.prometheus=true|false]");
+        System.out.println("java -cp <classpath> dev.stockman.dependencies.Cli diff /path/to/yesterday.snapshot /path/to/today.snapshot /path/to/changes.json");
+        System.out.println("java -cp <classpath> dev.stockman.dependencies.Cli merge /path/to/fleet.shard|/path/to/dependency-report.csv /path/to/owasp-raw.txt /path/to/agent-1.shard ...");
+        System.exit(1);
+    }
+
+    private static String setting(String argument, String environmentVariable, Object defaultValue) {
+        if (argument != null) {
+            return argument;
+        }
+        String value = System.getenv(environmentVariable);
+        return value != null ? value : String.valueOf(defaultValue);
+    }
+}
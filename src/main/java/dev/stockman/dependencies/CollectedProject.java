@@ -0,0 +1,8 @@
+package dev.stockman.dependencies;
+
+import java.util.List;
+
+// Everything collected for one project: its dependency CSV lines, the edges of its dependency trees as
+// project,parent,child lines and the dependency-check JSON reports of its modules
+public record CollectedProject(String project, List<String> dependencies, List<String> edges, List<String> vulnerabilityReports) {
+}
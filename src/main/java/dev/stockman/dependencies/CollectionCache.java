@@ -0,0 +1,225 @@
+package dev.stockman.dependencies;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// On-disk cache of collected projects keyed by a digest of every pom.xml in the project's module tree, so projects
+// whose poms did not change since the last run are not built again. Each entry ends with a SHA-256 of its content;
+// entries failing that check are deleted and collected again. Entries not used for maxAge are evicted. Entries also
+// hold the time they were written, their OWASP findings are stale findingsMaxAge after it however often the entry is
+// used, so they are checked again against the CVEs published since while the dependencies are kept.
+public class CollectionCache {
+    private static final int MAGIC = 0x44524343; // DRCC
+    private static final int FORMAT_VERSION = 3;
+    private static final String SUFFIX = ".cache";
+
+    private final Path directory;
+    private final Duration maxAge;
+    private final Duration findingsMaxAge;
+
+    // An entry and whether its findings are older than findingsMaxAge
+    public record Entry(CollectedProject project, boolean stale) {}
+
+    public CollectionCache(Path directory, Duration maxAge, Duration findingsMaxAge) {
+        this.directory = directory;
+        this.maxAge = maxAge;
+        this.findingsMaxAge = findingsMaxAge;
+    }
+
+    // Digest of the relative path and content of every pom.xml under the project, build output excluded
+    public static String key(Path project) throws IOException {
+        List<Path> poms = new ArrayList<>();
+        Files.walkFileTree(project, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                String name = dir.getFileName().toString();
+                return !dir.equals(project) && (name.equals("target") || name.startsWith(".")) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (file.getFileName().toString().equals("pom.xml")) {
+                    poms.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        poms.sort(null);
+        MessageDigest digest = sha256();
+        digest.update(Integer.toString(FORMAT_VERSION).getBytes(StandardCharsets.UTF_8));
+        for (Path pom : poms) {
+            digest.update(project.relativize(pom).toString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Files.readAllBytes(pom));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public Optional<Entry> get(String project, String key) {
+        return read(project, key);
+    }
+
+    // Entry of the project whatever poms it was collected for, without marking it as used
+    public Optional<CollectedProject> read(String project) {
+        return read(project, null).map(Entry::project);
+    }
+
+    // Project of an entry file of this cache, null for any other file
+    public static String project(Path entry) {
+        String fileName = entry.getFileName().toString();
+        return fileName.endsWith(SUFFIX) ? fileName.substring(0, fileName.length() - SUFFIX.length()) : null;
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    private Optional<Entry> read(String project, String key) {
+        Path entry = entry(project);
+        if (!Files.isRegularFile(entry)) {
+            return Optional.empty();
+        }
+        try (DigestInputStream digestInput = new DigestInputStream(new BufferedInputStream(Files.newInputStream(entry)), sha256())) {
+            DataInputStream input = new DataInputStream(digestInput);
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown cache format");
+            }
+            Instant written = Instant.ofEpochMilli(input.readLong());
+            String entryKey = input.readUTF();
+            String entryProject = input.readUTF();
+            List<String> dependencies = readStrings(input);
+            List<String> edges = readStrings(input);
+            List<String> vulnerabilityReports = readStrings(input);
+            byte[] expected = digestInput.getMessageDigest().digest();
+            digestInput.on(false);
+            byte[] actual = input.readNBytes(expected.length);
+            if (!MessageDigest.isEqual(expected, actual) || input.read() != -1) {
+                throw new IOException("Checksum mismatch");
+            }
+            if ((key != null && !entryKey.equals(key)) || !entryProject.equals(project)) {
+                return Optional.empty();
+            }
+            if (key != null) {
+                Files.setLastModifiedTime(entry, FileTime.from(Instant.now()));
+            }
+            return Optional.of(new Entry(new CollectedProject(project, dependencies, edges, vulnerabilityReports), written.isBefore(Instant.now().minus(findingsMaxAge))));
+        } catch (IOException e) {
+            System.out.println("Discarding corrupted cache entry " + entry + ": " + e.getMessage());
+            deleteQuietly(entry);
+            return Optional.empty();
+        }
+    }
+
+    public void put(String key, CollectedProject collected) throws IOException {
+        Files.createDirectories(directory);
+        Path entry = entry(collected.project());
+        Path temporary = Files.createTempFile(directory, collected.project(), ".tmp");
+        try {
+            try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(temporary))) {
+                DigestOutputStream digestOutput = new DigestOutputStream(file, sha256());
+                DataOutputStream output = new DataOutputStream(digestOutput);
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                output.writeLong(System.currentTimeMillis());
+                output.writeUTF(key);
+                output.writeUTF(collected.project());
+                writeStrings(output, collected.dependencies());
+                writeStrings(output, collected.edges());
+                writeStrings(output, collected.vulnerabilityReports());
+                output.flush();
+                file.write(digestOutput.getMessageDigest().digest());
+            }
+            Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            deleteQuietly(temporary);
+        }
+    }
+
+    // Deletes the entries that were neither written nor read within maxAge
+    public void evict() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        Instant oldest = Instant.now().minus(maxAge);
+        try (Stream<Path> entries = Files.list(directory)) {
+            for (Path entry : entries.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).toList()) {
+                if (Files.getLastModifiedTime(entry).toInstant().isBefore(oldest)) {
+                    System.out.println("Evicting cache entry " + entry);
+                    deleteQuietly(entry);
+                }
+            }
+        }
+    }
+
+    private Path entry(String project) {
+        return directory.resolve(project + SUFFIX);
+    }
+
+    private static void writeStrings(DataOutputStream output, List<String> values) throws IOException {
+        output.writeInt(values.size());
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream input) throws IOException {
+        int size = input.readInt();
+        if (size < 0) {
+            throw new IOException("Negative list size");
+        }
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            int length = input.readInt();
+            if (length < 0) {
+                throw new IOException("Negative string length");
+            }
+            byte[] bytes = input.readNBytes(length);
+            if (bytes.length != length) {
+                throw new IOException("Truncated entry");
+            }
+            values.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return values;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // Left for the next eviction
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
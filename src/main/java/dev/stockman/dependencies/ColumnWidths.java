@@ -0,0 +1,41 @@
+package dev.stockman.dependencies;
+
+import org.apache.poi.ss.usermodel.Sheet;
+
+import java.util.Arrays;
+
+// Estimates column widths from the string lengths written into each column. Streaming sheets only keep a window of
+// rows in memory, so Sheet.autoSizeColumn cannot see the whole column, and rendering every cell is too slow anyway.
+final class ColumnWidths {
+    private static final int PADDING = 2;
+    private static final int MAX_CHARACTERS = 255; // Excel's maximum column width
+
+    private int[] lengths;
+
+    ColumnWidths(int columns) {
+        this.lengths = new int[columns];
+    }
+
+    void track(int column, String value) {
+        if (value != null) {
+            track(column, value.length());
+        }
+    }
+
+    void track(int column, int length) {
+        if (column >= lengths.length) {
+            lengths = Arrays.copyOf(lengths, Math.max(column + 1, lengths.length * 2));
+        }
+        if (length > lengths[column]) {
+            lengths[column] = length;
+        }
+    }
+
+    void apply(Sheet sheet) {
+        for (int i = 0; i < lengths.length; i++) {
+            if (lengths[i] > 0) {
+                sheet.setColumnWidth(i, Math.min(lengths[i] + PADDING, MAX_CHARACTERS) * 256);
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package dev.stockman.dependencies;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Interns the coordinates of every dependency into dense int ids at ingestion. Dependencies built through the
+// dictionary share one String instance per distinct value, and one VersionKey per distinct version so every version
+// is parsed once.
+public final class CoordinateDictionary {
+    private final Field projects = new Field();
+    private final Field groupIds = new Field();
+    private final Field artifactIds = new Field();
+    private final Field versions = new Field();
+    private final Field packageTypes = new Field();
+    private final Field scopes = new Field();
+    private final List<VersionKey> versionKeys = new ArrayList<>();
+
+    public Dependency dependency(String groupId, String artifactId, String version, String packageType, String scope) {
+        int id = versions.id(version);
+        if (id == versionKeys.size()) {
+            versionKeys.add(VersionKey.of(versions.values.get(id)));
+        }
+        return new Dependency(groupIds.intern(groupId), artifactIds.intern(artifactId), versions.values.get(id), packageTypes.intern(packageType), scopes.intern(scope), versionKeys.get(id));
+    }
+
+    public String project(String project) {
+        return projects.intern(project);
+    }
+
+    private static final class Field {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        String intern(String value) {
+            return values.get(id(value));
+        }
+
+        int id(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                ids.put(value, id);
+                values.add(value);
+            }
+            return id;
+        }
+    }
+}
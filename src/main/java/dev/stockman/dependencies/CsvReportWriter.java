@@ -0,0 +1,86 @@
+package dev.stockman.dependencies;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+// Writes By Scope to the output and the other sections to sibling files named after it, e.g. report-by-version.csv.
+// The three matrix files share the same columns, coordinates rolled up in a file are left empty.
+public class CsvReportWriter implements ReportWriter {
+
+    private static final String MATRIX_HEADER = "Group ID,Artifact ID,Version,Package Type,Scope,Max Severity,Max CVSSv3,CVEs,Projects";
+
+    @Override
+    public void write(Rollups rollups, Map<String, List<Vulnerability>> vulnerabilities, Path output) throws IOException {
+        writeMatrix(output, rollups.byScope(), rollups.projects());
+        writeMatrix(sibling(output, "by-version"), rollups.byVersion(), rollups.projects());
+        writeMatrix(sibling(output, "by-artifact"), rollups.byArtifact(), rollups.projects());
+
+        try (BufferedWriter writer = Files.newBufferedWriter(sibling(output, "exposure"))) {
+            writer.write("Project,Critical,High,Medium,Low,Vulnerable Dependencies,Max CVSSv3");
+            writer.newLine();
+            for (ProjectExposure exposure : RiskJoin.exposure(rollups)) {
+                writer.write(escape(exposure.project()) + ',' + exposure.critical() + ',' + exposure.high() + ',' + exposure.medium() + ',' + exposure.low() + ','
+                        + exposure.vulnerableDependencies() + ',' + score(exposure.maxCvssv3Score()));
+                writer.newLine();
+            }
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(sibling(output, "vulnerabilities"))) {
+            writer.write("File Name,Name,Severity,CVSSv3,Description");
+            writer.newLine();
+            for (List<Vulnerability> section : ReportSections.vulnerabilities(vulnerabilities).values()) {
+                for (Vulnerability vulnerability : section) {
+                    writer.write(escape(vulnerability.fileName()) + ',' + escape(vulnerability.name()) + ',' + escape(vulnerability.severity()) + ','
+                            + score(vulnerability.cvssv3Score()) + ',' + escape(vulnerability.description()));
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    private static void writeMatrix(Path file, List<DependencyRow> rows, List<String> projects) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write(MATRIX_HEADER);
+            for (String project : projects) {
+                writer.write(',');
+                writer.write(escape(project));
+            }
+            writer.newLine();
+            for (DependencyRow row : rows) {
+                writer.write(row.toCsv());
+                writer.newLine();
+            }
+        }
+    }
+
+    // report.csv -> report-<suffix>.csv next to it
+    private static Path sibling(Path output, String suffix) {
+        String fileName = output.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String base = dot < 0 ? fileName : fileName.substring(0, dot);
+        return output.resolveSibling(base + '-' + suffix + ".csv");
+    }
+
+    private static String score(BigDecimal score) {
+        return score == null ? "" : score.toString();
+    }
+
+    // Quotes values containing a separator, a quote or a line break
+    static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,44 @@
+package dev.stockman.dependencies;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+// Canonical values of every vulnerability read from the OWASP reports, keyed by CVE name. The same CVE is reported
+// for every project and module containing the affected jar; its description is normalized once and all
+// Vulnerability instances share one String per distinct name, severity and description and one score instance.
+final class CveDictionary {
+    private final Map<String, String> descriptions = new HashMap<>();
+    private final Map<String, String> strings = new HashMap<>();
+    private final Map<BigDecimal, BigDecimal> scores = new HashMap<>();
+
+    Vulnerability vulnerability(String fileName, String name, String severity, BigDecimal cvssv3Score, String description) {
+        return new Vulnerability(fileName, intern(name), intern(severity), score(cvssv3Score), description(name, description));
+    }
+
+    // True when the description of the CVE is already known and the reader need not decode it again
+    boolean hasDescription(String name) {
+        return name != null && descriptions.containsKey(name);
+    }
+
+    // The first description read for a CVE is the one kept for all of its occurrences
+    private String description(String name, String description) {
+        if (name == null) {
+            return intern(OwaspTransformer.removeWhiteSpace(description));
+        }
+        String known = descriptions.get(name);
+        if (known == null && description != null) {
+            known = intern(OwaspTransformer.removeWhiteSpace(description));
+            descriptions.put(name, known);
+        }
+        return known;
+    }
+
+    private String intern(String value) {
+        return value == null ? null : strings.computeIfAbsent(value, v -> v);
+    }
+
+    private BigDecimal score(BigDecimal score) {
+        return score == null ? null : scores.computeIfAbsent(score, s -> s);
+    }
+}
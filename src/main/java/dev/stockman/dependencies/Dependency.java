@@ -3,7 +3,12 @@ package dev.stockman.dependencies;
 import java.util.Comparator;
 import java.util.Objects;
 
-public record Dependency(String groupId, String artifactId, String version, String packageType, String scope) implements Comparable<Dependency> {
+// versionKey orders the version as Maven does, it is parsed once per distinct version by the CoordinateDictionary
+public record Dependency(String groupId, String artifactId, String version, String packageType, String scope, VersionKey versionKey) implements Comparable<Dependency> {
+    public Dependency(String groupId, String artifactId, String version, String packageType, String scope) {
+        this(groupId, artifactId, version, packageType, scope, VersionKey.of(version));
+    }
+
     @Override
     public int compareTo(Dependency other) {
         // First, handle the special rule for the "test" scope
@@ -13,13 +18,7 @@ public record Dependency(String groupId, String artifactId, String version, Stri
             return -1; // "other" is test, so it goes to the end
         }
         // Existing comparison logic if neither or both are "test"
-        int result = this.groupId.compareTo(other.groupId);
-        if (result != 0) return result;
-        result = this.artifactId.compareTo(other.artifactId);
-        if (result != 0) return result;
-
-        // Null-safe comparison for version
-        result = Objects.compare(this.version, other.version, Comparator.nullsFirst(String::compareTo));
+        int result = compareVersion(other);
         if (result != 0) return result;
 
         // Null-safe comparison for scope
@@ -30,6 +29,25 @@ public record Dependency(String groupId, String artifactId, String version, Stri
         return this.packageType.compareTo(other.packageType);
     }
 
+    // Orders by groupId and artifactId only, the order of the By Artifact sheet
+    int compareArtifact(Dependency other) {
+        int result = this.groupId.compareTo(other.groupId);
+        if (result != 0) return result;
+        return this.artifactId.compareTo(other.artifactId);
+    }
+
+    // Orders by groupId, artifactId and version, the order of the By Version sheet. Versions Maven considers equal,
+    // such as 1.0 and 1, are still told apart by their text so each keeps its own row.
+    int compareVersion(Dependency other) {
+        int result = compareArtifact(other);
+        if (result != 0) return result;
+        if (this.version == other.version) return 0;
+        if (this.version == null || other.version == null) return this.version == null ? -1 : 1;
+        result = this.versionKey.compareTo(other.versionKey);
+        if (result != 0) return result;
+        return this.version.compareTo(other.version);
+    }
+
     public String uniqueFullId() {
         return String.format("%s:%s:%s:%s", groupId, artifactId, version, scope);
     }
@@ -39,10 +57,17 @@ public record Dependency(String groupId, String artifactId, String version, Stri
     public String uniqueArtifactId() {
         return String.format("%s:%s", groupId, artifactId);
     }
+    // Name of the artifact file in the local repository, which dependency-check reports vulnerabilities under
+    public String fileName() {
+        return switch (packageType) {
+            case "bundle", "maven-plugin", "ejb" -> artifactId + "-" + version + ".jar";
+            default -> artifactId + "-" + version + "." + packageType;
+        };
+    }
     public Dependency withoutScope() {
-        return new Dependency(groupId, artifactId, version, packageType, null);
+        return new Dependency(groupId, artifactId, version, packageType, null, versionKey);
     }
     public Dependency withoutVersionAndScope() {
-        return new Dependency(groupId, artifactId, null, packageType, null);
+        return new Dependency(groupId, artifactId, null, packageType, null, null);
     }
 }
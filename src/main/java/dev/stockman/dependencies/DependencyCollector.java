@@ -0,0 +1,280 @@
+package dev.stockman.dependencies;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Serial;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Runs mvn dependency:tree and the OWASP dependency-check for every project in the workspace and writes the
+// dependency CSV, the edges of the dependency trees next to it and the raw OWASP file consumed by the report.
+// Projects run in parallel on virtual threads, at most `concurrency` Maven builds and `owaspConcurrency`
+// dependency-checks at a time, since the checks share the NVD database. Projects whose poms did not change are taken
+// from the cache instead of being built again, only their OWASP check is run again once its findings are stale.
+public class DependencyCollector {
+    // The module a tree starts at, groupId:artifactId:packaging:version
+    private static final Pattern TREE_ROOT = Pattern.compile("^\\[INFO\\] [^:\\s]+:[^:\\s]+:[^:\\s]+:[^:\\s]+$");
+    // A dependency below it, every level of indentation is "|  " or "   " before the "+- " or "\\- " of the node
+    private static final Pattern TREE_NODE = Pattern.compile("^\\[INFO\\] ((?:[| ]  )*)[+\\\\]- (\\S+)(\\s.*)?$");
+    private static final String OWASP_REPORT = "dependency-check-report.json";
+
+    private final Pattern projectsToIgnore;
+    private final String mavenExecutable;
+    private final Semaphore mavenPermits;
+    private final Semaphore owaspPermits;
+    private final String cacheDirectory;
+    private final Duration cacheMaxAge;
+    private final Duration findingsMaxAge;
+    private final ArtifactScanner batchScanner;
+    private final int shard;
+    private final int shards;
+
+    // A batchScanner scans the distinct artifacts of all projects at once, without one every project is checked on its own.
+    // shard is index/count, e.g. 2/3: the projects are split by name into count parts and only the index-th is collected.
+    public DependencyCollector(Pattern projectsToIgnore, String mavenExecutable, int concurrency, int owaspConcurrency, String cacheDirectory, Duration cacheMaxAge, Duration findingsMaxAge, ArtifactScanner batchScanner, String shard) {
+        this.projectsToIgnore = projectsToIgnore;
+        this.mavenExecutable = mavenExecutable;
+        this.mavenPermits = new Semaphore(concurrency);
+        this.owaspPermits = new Semaphore(owaspConcurrency);
+        this.cacheDirectory = cacheDirectory;
+        this.cacheMaxAge = cacheMaxAge;
+        this.findingsMaxAge = findingsMaxAge;
+        this.batchScanner = batchScanner;
+        String[] parts = shard.split("/");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Expected index/count but got: " + shard);
+        }
+        this.shard = Integer.parseInt(parts[0].trim());
+        this.shards = Integer.parseInt(parts[1].trim());
+        if (this.shard < 1 || this.shard > this.shards) {
+            throw new IllegalArgumentException("Shard index must be between 1 and " + this.shards + " but got: " + shard);
+        }
+    }
+
+    // Collects every project, the OWASP reports are skipped when owaspOutput is null
+    public void collect(Path workspace, Path dependenciesOutput, Path owaspOutput) throws IOException, InterruptedException {
+        // A relative cache directory lives inside the workspace, it has no pom.xml so it is never taken for a project
+        CollectionCache cache = new CollectionCache(workspace.resolve(cacheDirectory), cacheMaxAge, findingsMaxAge);
+        cache.evict();
+        boolean checkProjects = owaspOutput != null && batchScanner == null;
+        // In batch mode the projects missing fresh findings are recorded with their keys, to be scanned together and
+        // cached once the fan-out handed them their findings
+        Map<String, String> unscanned = owaspOutput != null && batchScanner != null ? new ConcurrentHashMap<>() : null;
+        List<Future<CollectedProject>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Path project : projects(workspace)) {
+                results.add(executor.submit(() -> collect(cache, project, checkProjects, unscanned)));
+            }
+        }
+        List<CollectedProject> collected = new ArrayList<>();
+        try {
+            for (Future<CollectedProject> result : results) {
+                collected.add(result.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        if (unscanned != null && !unscanned.isEmpty()) {
+            OwaspFanOut.Scanned scanned;
+            owaspPermits.acquire();
+            try {
+                scanned = OwaspFanOut.scan(batchScanner, collected.stream().filter(project -> unscanned.containsKey(project.project())).toList());
+            } finally {
+                owaspPermits.release();
+            }
+            // Projects using an artifact whose scan failed keep the findings found but are not cached, so they are
+            // scanned again on the next run
+            Map<String, CollectedProject> byProject = new HashMap<>();
+            for (CollectedProject project : scanned.projects()) {
+                if (!scanned.failed().contains(project.project())) {
+                    cache.put(unscanned.get(project.project()), project);
+                }
+                byProject.put(project.project(), project);
+            }
+            collected = collected.stream().map(project -> byProject.getOrDefault(project.project(), project)).toList();
+        }
+        try (BufferedWriter dependencies = Files.newBufferedWriter(dependenciesOutput, StandardCharsets.UTF_8);
+             BufferedWriter edges = Files.newBufferedWriter(DependencyGraph.path(dependenciesOutput), StandardCharsets.UTF_8);
+             BufferedWriter owasp = owaspOutput == null ? null : Files.newBufferedWriter(owaspOutput, StandardCharsets.UTF_8)) {
+            for (CollectedProject project : collected) {
+                write(dependencies, project.dependencies());
+                write(edges, project.edges());
+                if (owasp != null) {
+                    write(owasp, project.vulnerabilityReports());
+                }
+            }
+        }
+    }
+
+    List<Path> projects(Path workspace) throws IOException {
+        try (Stream<Path> directories = Files.list(workspace)) {
+            return directories
+                    .filter(Files::isDirectory)
+                    .filter(directory -> !projectsToIgnore.matcher(directory.getFileName().toString()).matches())
+                    .filter(directory -> Math.floorMod(directory.getFileName().toString().hashCode(), shards) == shard - 1)
+                    .filter(directory -> Files.isRegularFile(directory.resolve("pom.xml")))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    // Collects the project or takes it from the cache. With unscanned a project without fresh findings is not cached
+    // here but recorded with its key, so it is cached once the batch scan handed it its findings.
+    private CollectedProject collect(CollectionCache cache, Path project, boolean withOwasp, Map<String, String> unscanned) throws IOException, InterruptedException {
+        String projectName = project.getFileName().toString();
+        String key = CollectionCache.key(project) + (withOwasp ? "+owasp" : unscanned != null ? "+batch" : "");
+        Optional<CollectionCache.Entry> cached = cache.get(projectName, key);
+        if (cached.isPresent() && ((!withOwasp && unscanned == null) || !cached.get().stale())) {
+            System.out.println("Using cached project: " + projectName);
+            return cached.get().project();
+        }
+        List<String> dependencies;
+        List<String> edges;
+        List<String> vulnerabilityReports = List.of();
+        if (cached.isPresent()) {
+            // Stale findings: the dependencies are kept and only the check runs again
+            System.out.println("Checking cached project again: " + projectName);
+            dependencies = cached.get().project().dependencies();
+            edges = cached.get().project().edges();
+            vulnerabilityReports = cached.get().project().vulnerabilityReports();
+        } else {
+            System.out.println("Processing project: " + projectName);
+            dependencies = new ArrayList<>();
+            edges = new ArrayList<>();
+            try {
+                parse(projectName, maven(mavenPermits, project, "dependency:tree"), dependencies, edges);
+            } catch (MavenException e) {
+                // Failed builds are reported and left out of the cache, so they are retried on the next run
+                System.out.println(e.getMessage());
+                return new CollectedProject(projectName, List.of(), List.of(), List.of());
+            }
+        }
+        if (withOwasp) {
+            try {
+                vulnerabilityReports = vulnerabilityReports(project);
+            } catch (MavenException e) {
+                // The dependencies, and stale findings if any, are still reported. The project is not cached again,
+                // so the check is retried on the next run.
+                System.out.println(e.getMessage());
+                return new CollectedProject(projectName, dependencies, edges, vulnerabilityReports);
+            }
+        }
+        CollectedProject collected = new CollectedProject(projectName, dependencies, edges, vulnerabilityReports);
+        if (unscanned != null) {
+            unscanned.put(projectName, key);
+        } else {
+            cache.put(key, collected);
+        }
+        return collected;
+    }
+
+    private List<String> vulnerabilityReports(Path project) throws IOException, InterruptedException {
+        maven(owaspPermits, project, "org.owasp:dependency-check-maven:check", "-Dformat=JSON", "-q");
+        try (Stream<Path> files = Files.walk(project, FileVisitOption.FOLLOW_LINKS)) {
+            List<Path> reports = files
+                    .filter(file -> file.getFileName().toString().equals(OWASP_REPORT))
+                    .filter(Files::isRegularFile)
+                    .sorted()
+                    .toList();
+            List<String> contents = new ArrayList<>();
+            for (Path report : reports) {
+                System.out.println("Appending vulnerability report: " + report);
+                contents.add(Files.readString(report).strip());
+            }
+            return contents;
+        }
+    }
+
+    private List<String> maven(Semaphore permits, Path project, String... goals) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of(mavenExecutable, "-B", "-f", project.resolve("pom.xml").toString()));
+        command.addAll(List.of(goals));
+        permits.acquire();
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .start();
+            List<String> output;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                output = reader.lines().toList();
+            }
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new MavenException(goals[0] + " failed for " + project.getFileName() + " with exit code " + exitCode);
+            }
+            return output;
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static void write(BufferedWriter writer, List<String> lines) throws IOException {
+        for (String line : lines) {
+            writer.write(line);
+            writer.newLine();
+        }
+    }
+
+    // Turns the output of dependency:tree into project,groupId,artifactId,version,packageType,scope lines, one per node
+    // as dependency:list would list them, and into project,parent,child edges between groupId:artifactId:version:
+    // packageType:scope nodes, with an empty parent for the direct dependencies of a module. Nodes with a classifier
+    // are not listed, as by dependency:list, but their edges are kept so the paths through them are not lost.
+    static void parse(String project, List<String> output, List<String> dependencies, List<String> edges) {
+        // Nodes from the root of the current tree down to the last one read, null before the first tree
+        List<String> path = null;
+        for (String line : output) {
+            if (TREE_ROOT.matcher(line).matches()) {
+                path = new ArrayList<>();
+                continue;
+            }
+            Matcher node = TREE_NODE.matcher(line);
+            if (path == null || !node.matches()) {
+                continue;
+            }
+            int depth = node.group(1).length() / 3;
+            if (depth > path.size()) {
+                continue;
+            }
+            String[] parts = node.group(2).split(":");
+            if (parts.length < 4 || parts.length > 6) {
+                continue;
+            }
+            String version = parts.length == 6 ? parts[4] : parts[3];
+            String scope = parts.length == 6 ? parts[5] : parts.length > 4 ? parts[4] : "";
+            String id = String.join(":", parts[0], parts[1], version, parts[2], scope);
+            edges.add(String.join(",", project, depth == 0 ? "" : path.get(depth - 1), id));
+            path.subList(depth, path.size()).clear();
+            path.add(id);
+            if (parts.length < 6) {
+                dependencies.add(String.join(",", project, parts[0], parts[1], version, parts[2], scope));
+            }
+        }
+    }
+
+    private static final class MavenException extends IOException {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        MavenException(String message) {
+            super(message);
+        }
+    }
+}
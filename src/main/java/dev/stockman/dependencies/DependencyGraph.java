@@ -0,0 +1,221 @@
+package dev.stockman.dependencies;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The dependency trees of every project as one graph in compressed sparse row form. Nodes are the distinct
+// groupId:artifactId:version:packageType:scope of the trees, node 0 stands for the project itself. The children of
+// node n are targets[offsets[n]] up to targets[offsets[n + 1]], and the projects whose trees hold edge e are the
+// sorted ids edgeProjects[projectOffsets[e]] up to edgeProjects[projectOffsets[e + 1]]. An edge shared by many
+// projects is stored once, so the graph grows with the distinct edges of the fleet rather than with its projects.
+public final class DependencyGraph {
+    private static final int ROOT = 0;
+    private static final String SUFFIX = "-tree.csv";
+    private static final int HIGH = Vulnerability.SEVERITY_ORDER.indexOf("HIGH");
+
+    private final List<String> projects;
+    private final Dependency[] nodes;
+    private final Map<Dependency, Integer> nodeIds;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] projectOffsets;
+    private final int[] edgeProjects;
+
+    // Builds the rows of every node from the edges read in any order: the edges are bucketed by parent with a
+    // counting sort, each bucket is sorted by child and project, and duplicates collapse into one edge
+    private DependencyGraph(List<String> projects, List<Dependency> nodes, int[] parents, int[] children, int[] owners, int size) {
+        this.projects = projects;
+        this.nodes = nodes.toArray(new Dependency[0]);
+        this.nodeIds = new HashMap<>();
+        for (int n = ROOT + 1; n < this.nodes.length; n++) {
+            nodeIds.put(this.nodes[n], n);
+        }
+
+        int[] buckets = new int[this.nodes.length + 1];
+        for (int i = 0; i < size; i++) {
+            buckets[parents[i] + 1]++;
+        }
+        for (int n = 0; n < this.nodes.length; n++) {
+            buckets[n + 1] += buckets[n];
+        }
+        int[] next = Arrays.copyOf(buckets, this.nodes.length);
+        long[] sorted = new long[size];
+        for (int i = 0; i < size; i++) {
+            sorted[next[parents[i]]++] = (long) children[i] << 32 | owners[i];
+        }
+
+        int[] offsets = new int[this.nodes.length + 1];
+        int[] targets = new int[size];
+        int[] projectOffsets = new int[size + 1];
+        int[] edgeProjects = new int[size];
+        int edges = 0;
+        int entries = 0;
+        for (int n = 0; n < this.nodes.length; n++) {
+            offsets[n] = edges;
+            Arrays.sort(sorted, buckets[n], buckets[n + 1]);
+            for (int i = buckets[n]; i < buckets[n + 1]; i++) {
+                int child = (int) (sorted[i] >>> 32);
+                int owner = (int) sorted[i];
+                if (i == buckets[n] || child != (int) (sorted[i - 1] >>> 32)) {
+                    targets[edges] = child;
+                    projectOffsets[edges] = entries;
+                    edges++;
+                }
+                if (entries == projectOffsets[edges - 1] || edgeProjects[entries - 1] != owner) {
+                    edgeProjects[entries++] = owner;
+                }
+            }
+        }
+        offsets[this.nodes.length] = edges;
+        projectOffsets[edges] = entries;
+        this.offsets = offsets;
+        this.targets = Arrays.copyOf(targets, edges);
+        this.projectOffsets = Arrays.copyOf(projectOffsets, edges + 1);
+        this.edgeProjects = Arrays.copyOf(edgeProjects, entries);
+    }
+
+    // dependency-report.csv -> dependency-report-tree.csv next to it
+    public static Path path(Path dependencies) {
+        String fileName = dependencies.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return dependencies.resolveSibling((dot < 0 ? fileName : fileName.substring(0, dot)) + SUFFIX);
+    }
+
+    // Reads the project,parent,child lines written by the collect command
+    public static DependencyGraph read(Path file) throws IOException {
+        List<String> projects = new ArrayList<>();
+        Map<String, Integer> projectIds = new HashMap<>();
+        List<Dependency> nodes = new ArrayList<>();
+        nodes.add(null);
+        Map<String, Integer> nodeIds = new HashMap<>();
+        int[] parents = new int[1024];
+        int[] children = new int[1024];
+        int[] owners = new int[1024];
+        int size = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                if (fields.length != 3 || fields[2].isEmpty()) {
+                    throw new IllegalArgumentException("Expected project,parent,child but got: " + line);
+                }
+                if (size == parents.length) {
+                    parents = Arrays.copyOf(parents, size * 2);
+                    children = Arrays.copyOf(children, size * 2);
+                    owners = Arrays.copyOf(owners, size * 2);
+                }
+                owners[size] = projectIds.computeIfAbsent(fields[0], project -> {
+                    projects.add(project);
+                    return projects.size() - 1;
+                });
+                parents[size] = fields[1].isEmpty() ? ROOT : node(fields[1], nodes, nodeIds);
+                children[size] = node(fields[2], nodes, nodeIds);
+                size++;
+            }
+        }
+        return new DependencyGraph(projects, nodes, parents, children, owners, size);
+    }
+
+    private static int node(String id, List<Dependency> nodes, Map<String, Integer> nodeIds) {
+        return nodeIds.computeIfAbsent(id, key -> {
+            String[] parts = key.split(":", -1);
+            if (parts.length != 5) {
+                throw new IllegalArgumentException("Expected groupId:artifactId:version:packageType:scope but got: " + key);
+            }
+            nodes.add(new Dependency(parts[0], parts[1], parts[2], parts[3], parts[4]));
+            return nodes.size() - 1;
+        });
+    }
+
+    public List<String> projects() {
+        return projects;
+    }
+
+    // Distinct edges, whatever the number of projects sharing them
+    public int edges() {
+        return targets.length;
+    }
+
+    // Shortest path to every By Scope row with a CRITICAL or HIGH finding, for every project of the rollups using it.
+    // Ordered by severity, then by project and row as in the rollups. Rows the trees of a project do not reach, e.g.
+    // of a project collected without its tree, are left out.
+    public List<VulnerablePath> vulnerablePaths(Rollups rollups) {
+        List<DependencyRow> rows = new ArrayList<>();
+        List<Integer> rowNodes = new ArrayList<>();
+        for (DependencyRow row : rollups.byScope()) {
+            Integer node = nodeIds.get(row.dependency());
+            if (row.risk().cveCount() > 0 && Vulnerability.severityRank(row.risk().maxSeverity()) <= HIGH && node != null) {
+                rows.add(row);
+                rowNodes.add(node);
+            }
+        }
+        Map<String, Integer> projectIds = new HashMap<>();
+        for (int i = 0; i < projects.size(); i++) {
+            projectIds.put(projects.get(i), i);
+        }
+
+        List<VulnerablePath> paths = new ArrayList<>();
+        int[] predecessors = new int[nodes.length];
+        int[] queue = new int[nodes.length];
+        for (int p = 0; p < rollups.projects().size(); p++) {
+            Integer project = projectIds.get(rollups.projects().get(p));
+            boolean searched = false;
+            for (int r = 0; project != null && r < rows.size(); r++) {
+                if (!rows.get(r).matrix().get(p)) {
+                    continue;
+                }
+                if (!searched) {
+                    search(project, predecessors, queue);
+                    searched = true;
+                }
+                int node = rowNodes.get(r);
+                if (predecessors[node] >= 0) {
+                    paths.add(new VulnerablePath(rollups.projects().get(p), rows.get(r), path(node, predecessors)));
+                }
+            }
+        }
+        paths.sort(Comparator.comparingInt(path -> Vulnerability.severityRank(path.row().risk().maxSeverity())));
+        return paths;
+    }
+
+    // Breadth first from the project over the edges of its trees, leaving the predecessor of every node on its
+    // shortest path from the project, -1 for nodes the project does not reach
+    private void search(int project, int[] predecessors, int[] queue) {
+        Arrays.fill(predecessors, -1);
+        predecessors[ROOT] = ROOT;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = ROOT;
+        while (head < tail) {
+            int node = queue[head++];
+            for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                int target = targets[e];
+                if (predecessors[target] < 0 && Arrays.binarySearch(edgeProjects, projectOffsets[e], projectOffsets[e + 1], project) >= 0) {
+                    predecessors[target] = node;
+                    queue[tail++] = target;
+                }
+            }
+        }
+    }
+
+    // Nodes from the direct dependency of the project down to the node
+    private List<Dependency> path(int node, int[] predecessors) {
+        List<Dependency> path = new ArrayList<>();
+        for (int n = node; n != ROOT; n = predecessors[n]) {
+            path.add(nodes[n]);
+        }
+        return path.reversed();
+    }
+}
@@ -0,0 +1,138 @@
+package dev.stockman.dependencies;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// In-memory indexes over the By Scope rows of one report run, used by the serve command. Every index maps a key to
+// the rows having it as a ProjectMatrix over row positions, so a query ANDs one bitset per criterion and never scans
+// the rows themselves.
+public final class DependencyIndex {
+    private final Rollups rollups;
+    private final List<ProjectExposure> exposure;
+    private final Map<String, List<Vulnerability>> vulnerabilitiesByFileName = new HashMap<>();
+    private final Map<String, ProjectMatrix> byGroupId = new HashMap<>();
+    private final Map<String, ProjectMatrix> byArtifactId = new HashMap<>();
+    private final NavigableMap<String, ProjectMatrix> byVersion = new TreeMap<>();
+    // The same rows in Maven version order, versions Maven considers equal share an entry
+    private final NavigableMap<VersionKey, ProjectMatrix> byVersionKey = new TreeMap<>();
+    private final Map<String, ProjectMatrix> byProject = new HashMap<>();
+    // Rows whose highest severity ranks at or above CRITICAL, HIGH, MEDIUM, LOW and NONE
+    private final ProjectMatrix[] bySeverity = new ProjectMatrix[Vulnerability.SEVERITY_ORDER.size()];
+    private final ProjectMatrix all;
+
+    public DependencyIndex(Rollups rollups, Collection<Vulnerability> vulnerabilities) {
+        this.rollups = rollups;
+        this.exposure = RiskJoin.exposure(rollups);
+        for (Vulnerability vulnerability : vulnerabilities) {
+            vulnerabilitiesByFileName.computeIfAbsent(vulnerability.fileName(), f -> new ArrayList<>()).add(vulnerability);
+        }
+        vulnerabilitiesByFileName.values().forEach(list -> list.sort(null));
+
+        List<DependencyRow> rows = rollups.byScope();
+        int size = rows.size();
+        all = new ProjectMatrix(size);
+        for (int i = 0; i < bySeverity.length; i++) {
+            bySeverity[i] = new ProjectMatrix(size);
+        }
+        ProjectMatrix[] projects = new ProjectMatrix[rollups.projects().size()];
+        for (int p = 0; p < projects.length; p++) {
+            projects[p] = new ProjectMatrix(size);
+            byProject.put(rollups.projects().get(p), projects[p]);
+        }
+        for (int r = 0; r < size; r++) {
+            DependencyRow row = rows.get(r);
+            Dependency dependency = row.dependency();
+            all.set(r);
+            byGroupId.computeIfAbsent(dependency.groupId(), k -> new ProjectMatrix(size)).set(r);
+            byArtifactId.computeIfAbsent(dependency.artifactId(), k -> new ProjectMatrix(size)).set(r);
+            if (dependency.version() != null) {
+                byVersion.computeIfAbsent(dependency.version(), k -> new ProjectMatrix(size)).set(r);
+                byVersionKey.computeIfAbsent(dependency.versionKey(), k -> new ProjectMatrix(size)).set(r);
+            }
+            if (row.risk().cveCount() > 0) {
+                for (int rank = Vulnerability.severityRank(row.risk().maxSeverity()); rank < bySeverity.length; rank++) {
+                    bySeverity[rank].set(r);
+                }
+            }
+            ProjectMatrix matrix = row.matrix();
+            for (int p = matrix.nextSetBit(0); p >= 0; p = matrix.nextSetBit(p + 1)) {
+                projects[p].set(r);
+            }
+        }
+    }
+
+    // Rows matching every given criterion, null criteria match all rows. The version matches whole leading parts, so
+    // 2.14 finds 2.14.0 and 2.14.1 but not 2.140; atLeast and below bound the version in Maven order, so below 2.15
+    // finds 2.9.1 but not 2.15.0-rc1. severity is the lowest severity to include, unknown severities are rejected.
+    public List<DependencyRow> query(String groupId, String artifactId, String versionPrefix, String atLeast, String below, String project, String severity) {
+        ProjectMatrix matches = all;
+        if (groupId != null) {
+            matches = matches.and(byGroupId.getOrDefault(groupId, new ProjectMatrix(all.size())));
+        }
+        if (artifactId != null) {
+            matches = matches.and(byArtifactId.getOrDefault(artifactId, new ProjectMatrix(all.size())));
+        }
+        if (versionPrefix != null) {
+            ProjectMatrix versions = new ProjectMatrix(all.size());
+            for (Map.Entry<String, ProjectMatrix> entry : byVersion.subMap(versionPrefix, true, versionPrefix + Character.MAX_VALUE, true).entrySet()) {
+                String version = entry.getKey();
+                if (version.length() == versionPrefix.length() || version.charAt(versionPrefix.length()) == '.' || version.charAt(versionPrefix.length()) == '-') {
+                    versions = versions.or(entry.getValue());
+                }
+            }
+            matches = matches.and(versions);
+        }
+        if (atLeast != null || below != null) {
+            NavigableMap<VersionKey, ProjectMatrix> bounded = byVersionKey;
+            if (atLeast != null) {
+                bounded = bounded.tailMap(VersionKey.of(atLeast), true);
+            }
+            if (below != null) {
+                bounded = bounded.headMap(VersionKey.of(below), false);
+            }
+            ProjectMatrix versions = new ProjectMatrix(all.size());
+            for (ProjectMatrix rows : bounded.values()) {
+                versions = versions.or(rows);
+            }
+            matches = matches.and(versions);
+        }
+        if (project != null) {
+            matches = matches.and(byProject.getOrDefault(project, new ProjectMatrix(all.size())));
+        }
+        if (severity != null) {
+            int rank = Vulnerability.SEVERITY_ORDER.indexOf(severity.toUpperCase(Locale.ROOT));
+            if (rank < 0) {
+                throw new IllegalArgumentException("Unknown severity " + severity + ", expected one of " + Vulnerability.SEVERITY_ORDER);
+            }
+            matches = matches.and(bySeverity[rank]);
+        }
+        List<DependencyRow> result = new ArrayList<>(matches.cardinality());
+        for (int r = matches.nextSetBit(0); r >= 0; r = matches.nextSetBit(r + 1)) {
+            result.add(rollups.byScope().get(r));
+        }
+        return result;
+    }
+
+    public List<String> projects() {
+        return rollups.projects();
+    }
+
+    public List<ProjectExposure> exposure() {
+        return exposure;
+    }
+
+    // Known vulnerabilities of the artifact file of the dependency, most severe first
+    public List<Vulnerability> vulnerabilities(Dependency dependency) {
+        return vulnerabilitiesByFileName.getOrDefault(dependency.fileName(), List.of());
+    }
+
+    public int size() {
+        return all.size();
+    }
+}
@@ -0,0 +1,79 @@
+package dev.stockman.dependencies;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+// Builds the By Scope, By Version and By Artifact matrices from dependencies sorted in Dependency order.
+// Equal dependencies are adjacent, so By Scope is aggregated in a single pass. Test scoped rows sort after all the
+// others, which leaves By Scope as two runs that are each ordered by groupId, artifactId and version. Merging the
+// two runs yields the coarser levels already sorted, without hashing or sorting them again.
+public final class DependencyRollup {
+    private DependencyRollup() {}
+
+    public static Rollups rollup(List<DependencyRaw> dependencies) {
+        List<String> projects = dependencies.stream()
+                .map(DependencyRaw::project)
+                .distinct()
+                .toList();
+        return rollup(dependencies.iterator(), projects);
+    }
+
+    // Rolls up dependencies streamed in Dependency order, e.g. from DependencyRuns, into the columns of projects
+    public static Rollups rollup(Iterator<DependencyRaw> dependencies, List<String> projects) {
+        Map<String, Integer> projectsPosition = new HashMap<>();
+        for (int i = 0; i < projects.size(); i++) {
+            projectsPosition.put(projects.get(i), i);
+        }
+
+        List<DependencyRow> byScope = new ArrayList<>();
+        int firstTestRow = -1;
+        DependencyRow current = null;
+        while (dependencies.hasNext()) {
+            DependencyRaw raw = dependencies.next();
+            int order = current == null ? -1 : current.dependency().compareTo(raw.dependency());
+            if (order > 0) {
+                throw new IllegalArgumentException("Dependencies must be sorted: " + raw.dependency() + " follows " + current.dependency());
+            }
+            if (order < 0) {
+                current = new DependencyRow(raw.dependency(), new ProjectMatrix(projects.size()));
+                if (firstTestRow < 0 && "test".equals(raw.dependency().scope())) {
+                    firstTestRow = byScope.size();
+                }
+                byScope.add(current);
+            }
+            current.matrix().set(projectsPosition.get(raw.project()));
+        }
+        if (firstTestRow < 0) {
+            firstTestRow = byScope.size();
+        }
+
+        List<DependencyRow> byVersion = new ArrayList<>();
+        List<DependencyRow> byArtifact = new ArrayList<>();
+        int i = 0;
+        int j = firstTestRow;
+        while (i < firstTestRow || j < byScope.size()) {
+            DependencyRow next;
+            if (j == byScope.size() || (i < firstTestRow && byScope.get(i).dependency().compareVersion(byScope.get(j).dependency()) <= 0)) {
+                next = byScope.get(i++);
+            } else {
+                next = byScope.get(j++);
+            }
+            DependencyRow version = byVersion.isEmpty() ? null : byVersion.getLast();
+            if (version != null && version.dependency().compareVersion(next.dependency()) == 0) {
+                byVersion.set(byVersion.size() - 1, DependencyRow.merge(version.dependency(), version.matrix(), next.matrix()));
+            } else {
+                byVersion.add(new DependencyRow(next.dependency().withoutScope(), next.matrix()));
+            }
+            DependencyRow artifact = byArtifact.isEmpty() ? null : byArtifact.getLast();
+            if (artifact != null && artifact.dependency().compareArtifact(next.dependency()) == 0) {
+                byArtifact.set(byArtifact.size() - 1, DependencyRow.merge(artifact.dependency(), artifact.matrix(), next.matrix()));
+            } else {
+                byArtifact.add(new DependencyRow(next.dependency().withoutVersionAndScope(), next.matrix()));
+            }
+        }
+        return new Rollups(projects, byScope, byVersion, byArtifact);
+    }
+}
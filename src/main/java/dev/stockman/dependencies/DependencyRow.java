@@ -1,28 +1,38 @@
 package dev.stockman.dependencies;
 
-public record DependencyRow(Dependency dependency, boolean[] matrix) implements Comparable<DependencyRow> {
+public record DependencyRow(Dependency dependency, ProjectMatrix matrix, Risk risk) implements Comparable<DependencyRow> {
+    public DependencyRow(Dependency dependency, ProjectMatrix matrix) {
+        this(dependency, matrix, Risk.NONE);
+    }
     @Override
     public int compareTo(DependencyRow other) {
         return this.dependency.compareTo(other.dependency);
     }
+    // Coordinates, risk, number of projects and one true/false column per project, as in the matrix sheets.
+    // Coordinates rolled up in this row and the risk of a row without known vulnerabilities are left empty.
     public String toCsv() {
-        StringBuilder matrixString = new StringBuilder();
-        for (int i = 0; i < matrix.length; i++) {
-            matrixString.append(matrix[i]);
-            if (i < matrix.length - 1) {
-                matrixString.append(",");
+        StringBuilder csv = new StringBuilder(64 + matrix.size() * 6);
+        csv.append(CsvReportWriter.escape(dependency.groupId())).append(',')
+                .append(CsvReportWriter.escape(dependency.artifactId())).append(',')
+                .append(CsvReportWriter.escape(dependency.version())).append(',')
+                .append(CsvReportWriter.escape(dependency.packageType())).append(',')
+                .append(CsvReportWriter.escape(dependency.scope())).append(',');
+        if (risk.cveCount() > 0) {
+            csv.append(risk.maxSeverity()).append(',');
+            if (risk.maxCvssv3Score() != null) {
+                csv.append(risk.maxCvssv3Score());
             }
+            csv.append(',').append(risk.cveCount());
+        } else {
+            csv.append(",,");
         }
-        return String.format("%s,%s,%s,%s,%s,%s", dependency.groupId(), dependency.artifactId(), dependency.version(), dependency.packageType(), dependency.scope(), matrixString);
-    }
-    public static DependencyRow merge(Dependency a, boolean[] matrixA, boolean[] matrixB) {
-        if (matrixA.length != matrixB.length) {
-            throw new IllegalArgumentException("Matrix lengths must be equal");
-        }
-        boolean[] matrix = new boolean[matrixA.length];
-        for (int i = 0; i < matrixA.length; i++) {
-            matrix[i] = matrixA[i] || matrixB[i];
+        csv.append(',').append(matrix.cardinality());
+        for (int i = 0; i < matrix.size(); i++) {
+            csv.append(',').append(matrix.get(i));
         }
-        return new DependencyRow(a, matrix);
+        return csv.toString();
+    }
+    public static DependencyRow merge(Dependency a, ProjectMatrix matrixA, ProjectMatrix matrixB) {
+        return new DependencyRow(a, matrixA.or(matrixB));
     }
 }
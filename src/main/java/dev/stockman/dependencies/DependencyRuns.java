@@ -0,0 +1,329 @@
+package dev.stockman.dependencies;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+// Distinct dependencies of a CSV of any size, streamed in Dependency order with a bounded heap. The CSV is split into
+// ranges that MappedCsv parses and sorts in parallel on the common fork-join pool, the ranges parsed at the same time
+// holding about chunkLines lines together. When the CSV needs more ranges than that, every range is written to a
+// temporary run file. The sorted ranges or runs are merged k-ways; a CSV fitting in one budget never touches the disk.
+//
+// The stream is the one a single sort of the whole file gives, whatever the chunkLines: sorting is stable, a merge takes
+// equal dependencies from earlier runs first, and a line repeated anywhere in the file is only kept where it first
+// occurs.
+// Projects are in the order they first appear in the stream, which is known before it is read.
+public final class DependencyRuns implements Iterator<DependencyRaw>, Closeable {
+    // Runs merged at once, each open run holds a file descriptor and a read buffer. More runs are first merged in
+    // groups of consecutive runs, which keeps equal dependencies in the order of the file.
+    private static final int MAX_FAN_IN = 64;
+
+    private final List<String> projects;
+    private final Iterator<DependencyRaw> merged;
+    private final List<Run> runs;
+    private final Path directory;
+    private final int spilledRuns;
+    // Projects already seen with the dependency of the previous element, to drop repeated lines
+    private final Set<String> sameDependency = new HashSet<>();
+    private Dependency previous;
+    private DependencyRaw next;
+    private long streamed;
+
+    private DependencyRuns(List<String> projects, Iterator<DependencyRaw> merged, List<Run> runs, Path directory, int spilledRuns) {
+        this.projects = projects;
+        this.merged = merged;
+        this.runs = runs;
+        this.directory = directory;
+        this.spilledRuns = spilledRuns;
+        advance();
+    }
+
+    public static DependencyRuns sort(Path file, Pattern projectsToIgnore, CoordinateDictionary dictionary, int chunkLines) throws IOException {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        Map<String, FirstAppearance> firstAppearances = new HashMap<>();
+        List<Iterator<DependencyRaw>> sorted = new ArrayList<>();
+        List<Run> runs = new ArrayList<>();
+        Path directory = null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // A budget of chunkLines lines is shared by the ranges parsed at the same time
+            long rangeBytes = Math.max(1, chunkLines * MappedCsv.lineBytes(channel) / parallelism);
+            List<MappedCsv.Range> ranges = MappedCsv.ranges(channel, rangeBytes);
+            Path spill = ranges.size() > parallelism ? directory = Files.createTempDirectory("dependency-runs") : null;
+            List<Chunk> chunks = IntStream.range(0, ranges.size()).parallel()
+                    .mapToObj(range -> Chunk.parse(channel, ranges.get(range), range, projectsToIgnore, dictionary, spill))
+                    .toList();
+            for (Chunk chunk : chunks) {
+                chunk.firstAppearances.forEach((project, first) -> firstAppearances.merge(project, first, (a, b) -> a.compareTo(b) <= 0 ? a : b));
+                if (chunk.run != null) {
+                    runs.add(chunk.run);
+                } else {
+                    sorted.add(chunk.dependencies.iterator());
+                }
+            }
+        } catch (UncheckedIOException e) {
+            close(runs, directory);
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            close(runs, directory);
+            throw e;
+        }
+
+        List<String> projects = firstAppearances.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .toList();
+        if (runs.isEmpty()) {
+            return new DependencyRuns(projects, new Merge(sorted), runs, null, 0);
+        }
+        int spilledRuns = runs.size();
+        try {
+            while (runs.size() > MAX_FAN_IN) {
+                runs = reduce(runs, directory, dictionary);
+            }
+            for (Run run : runs) {
+                run.open(dictionary);
+            }
+        } catch (IOException | RuntimeException e) {
+            close(runs, directory);
+            throw e;
+        }
+        return new DependencyRuns(projects, new Merge(runs), runs, directory, spilledRuns);
+    }
+
+    // Merges every MAX_FAN_IN consecutive runs into one
+    private static List<Run> reduce(List<Run> runs, Path directory, CoordinateDictionary dictionary) throws IOException {
+        List<Run> reduced = new ArrayList<>();
+        for (int from = 0; from < runs.size(); from += MAX_FAN_IN) {
+            List<Run> group = runs.subList(from, Math.min(from + MAX_FAN_IN, runs.size()));
+            int size = 0;
+            for (Run run : group) {
+                run.open(dictionary);
+                size += run.size;
+            }
+            reduced.add(Run.write(directory, size, new Merge(group)));
+            for (Run run : group) {
+                run.close();
+                Files.delete(run.file);
+            }
+        }
+        return reduced;
+    }
+
+    // Projects in the order of their first appearance in the stream
+    public List<String> projects() {
+        return projects;
+    }
+
+    // Number of sorted runs written to disk, 0 when the CSV fit in one chunk
+    public int spilledRuns() {
+        return spilledRuns;
+    }
+
+    // Number of distinct dependencies streamed so far
+    public long streamed() {
+        return streamed;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public DependencyRaw next() {
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        DependencyRaw current = next;
+        streamed++;
+        advance();
+        return current;
+    }
+
+    private void advance() {
+        next = null;
+        while (merged.hasNext()) {
+            DependencyRaw raw = merged.next();
+            if (previous == null || !previous.equals(raw.dependency())) {
+                previous = raw.dependency();
+                sameDependency.clear();
+            }
+            if (sameDependency.add(raw.project())) {
+                next = raw;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        close(runs, directory);
+    }
+
+    private static void close(List<Run> runs, Path directory) throws IOException {
+        for (Run run : runs) {
+            run.close();
+        }
+        if (directory != null) {
+            try (var files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    // Position of the earliest line with the lowest dependency of a project, projects first appear in this order
+    private record FirstAppearance(Dependency dependency, long index) implements Comparable<FirstAppearance> {
+        @Override
+        public int compareTo(FirstAppearance other) {
+            int result = dependency.compareTo(other.dependency);
+            return result != 0 ? result : Long.compare(index, other.index);
+        }
+    }
+
+    // One range of the CSV parsed and sorted, kept in memory or spilled to a run
+    private record Chunk(List<DependencyRaw> dependencies, Run run, Map<String, FirstAppearance> firstAppearances) {
+        static Chunk parse(FileChannel channel, MappedCsv.Range range, int index, Pattern projectsToIgnore, CoordinateDictionary dictionary, Path spill) {
+            try {
+                MappedCsv.Parsed parsed = MappedCsv.parse(channel, range, projectsToIgnore, dictionary);
+                List<DependencyRaw> dependencies = parsed.dependencies();
+                Map<String, FirstAppearance> firstAppearances = new HashMap<>();
+                parsed.firstLowest().forEach((project, line) ->
+                        firstAppearances.put(project, new FirstAppearance(dependencies.get(line).dependency(), ((long) index << 32) | line)));
+                dependencies.sort(null);
+                if (spill == null) {
+                    return new Chunk(dependencies, null, firstAppearances);
+                }
+                return new Chunk(null, Run.write(spill, dependencies.size(), dependencies.iterator()), firstAppearances);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // One sorted chunk on disk, read back one dependency at a time
+    private static final class Run implements Iterator<DependencyRaw> {
+        private final Path file;
+        private final int size;
+        private CoordinateDictionary dictionary;
+        private DataInputStream input;
+        private int remaining;
+
+        private Run(Path file, int size) {
+            this.file = file;
+            this.size = size;
+        }
+
+        // Writes the size dependencies, already sorted, to a new file of directory
+        static Run write(Path directory, int size, Iterator<DependencyRaw> dependencies) throws IOException {
+            Path file = Files.createTempFile(directory, "dependencies", ".run");
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+                output.writeInt(size);
+                while (dependencies.hasNext()) {
+                    DependencyRaw raw = dependencies.next();
+                    Dependency dependency = raw.dependency();
+                    output.writeUTF(raw.project());
+                    output.writeUTF(dependency.groupId());
+                    output.writeUTF(dependency.artifactId());
+                    output.writeUTF(dependency.version());
+                    output.writeUTF(dependency.packageType());
+                    output.writeUTF(dependency.scope());
+                }
+            }
+            return new Run(file, size);
+        }
+
+        void open(CoordinateDictionary dictionary) throws IOException {
+            this.dictionary = dictionary;
+            input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+            remaining = input.readInt();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public DependencyRaw next() {
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+            remaining--;
+            try {
+                String project = dictionary.project(input.readUTF());
+                return new DependencyRaw(dictionary.dependency(input.readUTF(), input.readUTF(), input.readUTF(), input.readUTF(), input.readUTF()), project);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void close() throws IOException {
+            if (input != null) {
+                input.close();
+            }
+        }
+    }
+
+    // k-way merge of sorted sources, equal dependencies are taken from the earlier source first
+    private static final class Merge implements Iterator<DependencyRaw> {
+        private final List<? extends Iterator<DependencyRaw>> sources;
+        private final DependencyRaw[] heads;
+        private final PriorityQueue<Integer> order;
+
+        Merge(List<? extends Iterator<DependencyRaw>> sources) {
+            this.sources = sources;
+            this.heads = new DependencyRaw[sources.size()];
+            this.order = new PriorityQueue<>(Math.max(1, sources.size()),
+                    Comparator.comparing((Integer source) -> heads[source]).thenComparing(Comparator.naturalOrder()));
+            for (int source = 0; source < sources.size(); source++) {
+                if (sources.get(source).hasNext()) {
+                    heads[source] = sources.get(source).next();
+                    order.add(source);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !order.isEmpty();
+        }
+
+        @Override
+        public DependencyRaw next() {
+            Integer source = order.poll();
+            if (source == null) {
+                throw new NoSuchElementException();
+            }
+            DependencyRaw raw = heads[source];
+            if (sources.get(source).hasNext()) {
+                heads[source] = sources.get(source).next();
+                order.add(source);
+            }
+            return raw;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package dev.stockman.dependencies;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// serve command: answers queries over the dependency CSV and OWASP report of a workspace from a DependencyIndex held
+// in memory, over a local HTTP API on the JDK's built-in server. The index is rebuilt in the background when either
+// file changes and swapped in once complete; queries keep using the previous index until then, or for good when the
+// new files cannot be read.
+//
+//   GET /dependencies?groupId=&artifactId=&version=&atLeast=&below=&project=&severity=   matching By Scope rows
+//   GET /projects                                                                       exposure of every project
+//
+// A query the index rejects, e.g. with an unknown severity, is answered with 400 and the reason.
+public final class DependencyServer {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    // Files are usually rewritten in several steps, a reload waits until they were quiet for this long
+    private static final long QUIET_MILLIS = 1000;
+
+    private final ReportGenerator generator;
+    private final Path dependencies;
+    private final Path owasp;
+    private final int port;
+    private volatile DependencyIndex index;
+
+    public DependencyServer(ReportGenerator generator, Path dependencies, Path owasp, int port) {
+        this.generator = generator;
+        this.dependencies = dependencies;
+        this.owasp = owasp;
+        this.port = port;
+    }
+
+    // Serves until the process is stopped
+    public void serve() throws IOException, InterruptedException {
+        index = load();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/dependencies", exchange -> handle(exchange, this::dependencies));
+        server.createContext("/projects", exchange -> handle(exchange, this::projects));
+        server.start();
+        System.out.println("Serving " + index.size() + " dependencies of " + index.projects().size() + " projects on http://localhost:" + server.getAddress().getPort());
+        try {
+            watch();
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private DependencyIndex load() throws IOException {
+        Set<Vulnerability> vulnerabilities = Files.exists(owasp) ? ReportGenerator.vulnerabilities(owasp) : Set.of();
+        return new DependencyIndex(generator.rollups(dependencies, vulnerabilities), vulnerabilities);
+    }
+
+    private void watch() throws IOException, InterruptedException {
+        try (WatchService watcher = dependencies.getFileSystem().newWatchService()) {
+            Path directory = dependencies.toAbsolutePath().getParent();
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            if (!owasp.toAbsolutePath().getParent().equals(directory)) {
+                owasp.toAbsolutePath().getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+            while (true) {
+                if (!changed(watcher.take())) {
+                    continue;
+                }
+                WatchKey key;
+                while ((key = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed(key);
+                }
+                try {
+                    long start = System.nanoTime();
+                    index = load();
+                    System.out.println("Reloaded " + index.size() + " dependencies in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+                } catch (IOException | RuntimeException e) {
+                    System.out.println("Keeping the previous index, reload failed: " + e);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+
+    // Whether the events of the key touch the dependency CSV or the OWASP report
+    private boolean changed(WatchKey key) {
+        boolean changed = false;
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.context() instanceof Path file) {
+                Path path = directory.resolve(file);
+                changed |= path.equals(dependencies.toAbsolutePath()) || path.equals(owasp.toAbsolutePath());
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    private Body dependencies(Map<String, String> parameters, DependencyIndex index) {
+        List<DependencyRow> rows = index.query(parameters.get("groupId"), parameters.get("artifactId"), parameters.get("version"),
+                parameters.get("atLeast"), parameters.get("below"), parameters.get("project"), parameters.get("severity"));
+        return generator -> {
+            generator.writeStartArray();
+            for (DependencyRow row : rows) {
+                Dependency dependency = row.dependency();
+                generator.writeStartObject();
+                generator.writeStringField("groupId", dependency.groupId());
+                generator.writeStringField("artifactId", dependency.artifactId());
+                generator.writeStringField("version", dependency.version());
+                generator.writeStringField("packageType", dependency.packageType());
+                generator.writeStringField("scope", dependency.scope());
+                generator.writeArrayFieldStart("projects");
+                for (int p = row.matrix().nextSetBit(0); p >= 0; p = row.matrix().nextSetBit(p + 1)) {
+                    generator.writeString(index.projects().get(p));
+                }
+                generator.writeEndArray();
+                generator.writeArrayFieldStart("vulnerabilities");
+                for (Vulnerability vulnerability : index.vulnerabilities(dependency)) {
+                    generator.writeStartObject();
+                    generator.writeStringField("name", vulnerability.name());
+                    generator.writeStringField("severity", vulnerability.severity());
+                    if (vulnerability.cvssv3Score() != null) {
+                        generator.writeNumberField("cvssv3Score", vulnerability.cvssv3Score());
+                    }
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        };
+    }
+
+    private Body projects(Map<String, String> parameters, DependencyIndex index) {
+        return generator -> {
+            generator.writeStartArray();
+            for (ProjectExposure exposure : index.exposure()) {
+                generator.writeStartObject();
+                generator.writeStringField("project", exposure.project());
+                generator.writeNumberField("critical", exposure.critical());
+                generator.writeNumberField("high", exposure.high());
+                generator.writeNumberField("medium", exposure.medium());
+                generator.writeNumberField("low", exposure.low());
+                generator.writeNumberField("vulnerableDependencies", exposure.vulnerableDependencies());
+                if (exposure.maxCvssv3Score() != null) {
+                    generator.writeNumberField("maxCvssv3Score", exposure.maxCvssv3Score());
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        };
+    }
+
+    // Runs the query and returns the body to write, throws IllegalArgumentException for a query it rejects
+    @FunctionalInterface
+    private interface Handler {
+        Body handle(Map<String, String> parameters, DependencyIndex index);
+    }
+
+    @FunctionalInterface
+    private interface Body {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            Body response;
+            try {
+                response = handler.handle(parameters(exchange.getRequestURI().getRawQuery()), index);
+            } catch (IllegalArgumentException e) {
+                byte[] message = e.getMessage().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                exchange.sendResponseHeaders(400, message.length);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(message);
+                }
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody();
+                 JsonGenerator generator = JSON_FACTORY.createGenerator(body)) {
+                response.write(generator);
+            }
+        }
+    }
+
+    private static Map<String, String> parameters(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0 && equals < pair.length() - 1) {
+                parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8), URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+}
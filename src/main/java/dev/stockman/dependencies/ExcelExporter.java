@@ -2,94 +2,197 @@ package dev.stockman.dependencies;
 
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
-public class ExcelExporter {
+public class ExcelExporter implements ReportWriter {
+    private static final String[] BY_SCOPE_COLUMNS = {"Group ID", "Artifact ID", "Version", "Package Type", "Scope", "Max Severity", "Max CVSSv3", "CVEs", "Projects"};
+    private static final String[] BY_VERSION_COLUMNS = {"Group ID", "Artifact ID", "Version", "Package Type", "Latest in Fleet", "Versions Behind", "Max Severity", "Max CVSSv3", "CVEs", "Projects"};
+    private static final String[] BY_ARTIFACT_COLUMNS = {"Group ID", "Artifact ID", "Package Type", "Max Severity", "Max CVSSv3", "CVEs", "Projects"};
+    private static final String[] EXPOSURE_COLUMNS = {"Project", "Critical", "High", "Medium", "Low", "Vulnerable Dependencies", "Max CVSSv3"};
+    private static final String[] VULNERABLE_PATHS_COLUMNS = {"Project", "Group ID", "Artifact ID", "Version", "Package Type", "Scope", "Max Severity", "Max CVSSv3", "CVEs", "Direct Dependency", "Depth", "Path"};
 
-    public void exportToExcel(List<DependencyRow> rows, List<String> projects, Map<String, List<Vulnerability>> vulnerabilities, String filePath) throws IOException {
-        try (Workbook workbook = new XSSFWorkbook()) {
+    // Rows kept in memory per sheet before older ones are flushed to disk, -1 keeps every row in memory
+    private final int rowAccessWindow;
+    private final RunProfile profile;
+    private final Future<List<VulnerablePath>> vulnerablePaths;
 
-            createByScope(workbook, rows, projects);
-            createByVersion(workbook, removeScopeAndMerge(rows), projects);
-            createByArtifact(workbook, removeScopeAndVersionAndMerge(rows), projects);
+    public ExcelExporter(int rowAccessWindow) {
+        this(rowAccessWindow, RunProfile.NONE, null);
+    }
 
-            List<Vulnerability> severities = vulnerabilities.remove("CRITICAL");
-            if (severities != null) {
-                addVulnerabilities(workbook, "CRITICAL", severities);
-            }
+    // Times every sheet and the final write of the workbook into the profile. The Vulnerable Paths sheet is only
+    // added with the paths, which are found while the other sheets render.
+    public ExcelExporter(int rowAccessWindow, RunProfile profile, Future<List<VulnerablePath>> vulnerablePaths) {
+        this.rowAccessWindow = rowAccessWindow;
+        this.profile = profile;
+        this.vulnerablePaths = vulnerablePaths;
+    }
 
-            severities = vulnerabilities.remove("HIGH");
-            if (severities != null) {
-                addVulnerabilities(workbook, "HIGH", severities);
-            }
+    @Override
+    public void write(Rollups rollups, Map<String, List<Vulnerability>> vulnerabilities, Path output) throws IOException {
+        exportToExcel(rollups, vulnerabilities, output.toString());
+    }
 
-            severities = vulnerabilities.remove("MEDIUM");
-            if (severities != null) {
-                addVulnerabilities(workbook, "MEDIUM", severities);
-            }
+    @Override
+    public void write(Future<Rollups> rollups, Map<String, List<Vulnerability>> vulnerabilities, Path output) throws IOException {
+        exportToExcel(rollups, vulnerabilities, output.toString());
+    }
 
-            severities = vulnerabilities.remove("LOW");
-            if (severities != null) {
-                addVulnerabilities(workbook, "LOW", severities);
+    public void exportToExcel(Rollups rollups, Map<String, List<Vulnerability>> vulnerabilities, String filePath) throws IOException {
+        exportToExcel(CompletableFuture.completedFuture(rollups), vulnerabilities, filePath);
+    }
+
+    // The workbook, its style table and its list of sheets are not thread safe, so every sheet and style is created
+    // first. Each sheet then renders its rows on its own thread into its own temporary part, SXSSF flushing the rows
+    // outside of the window, and the parts are zipped into the xlsx by the final write. The severity sheets only need
+    // the vulnerabilities, they render while the rollups are still being built.
+    public void exportToExcel(Future<Rollups> rollups, Map<String, List<Vulnerability>> vulnerabilities, String filePath) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowAccessWindow);
+        workbook.setCompressTempFiles(true);
+        try {
+            Styles styles = new Styles(workbook);
+            Sheet byScope = frozenSheet(workbook, "By Scope");
+            Sheet byVersion = frozenSheet(workbook, "By Version");
+            Sheet byArtifact = frozenSheet(workbook, "By Artifact");
+            Sheet exposure = frozenSheet(workbook, "Exposure");
+            Sheet paths = vulnerablePaths == null ? null : frozenSheet(workbook, "Vulnerable Paths");
+
+            List<Part> severities = new ArrayList<>();
+            for (String severity : List.of("CRITICAL", "HIGH", "MEDIUM", "LOW", "NONE")) {
+                List<Vulnerability> vulnerabilitiesOfSeverity = vulnerabilities.remove(severity);
+                if (vulnerabilitiesOfSeverity != null && !vulnerabilitiesOfSeverity.isEmpty()) {
+                    severities.add(vulnerabilities(workbook.createSheet(severity), severity, vulnerabilitiesOfSeverity));
+                }
             }
 
-            severities = vulnerabilities.remove("NONE");
-            if (severities != null) {
-                addVulnerabilities(workbook, "NONE", severities);
+            try (ExecutorService executor = Executors.newFixedThreadPool(Math.min(4 + severities.size(), Runtime.getRuntime().availableProcessors()))) {
+                List<Future<ColumnWidths>> severityWidths = render(executor, severities);
+                Rollups built = Stages.join(rollups);
+                List<Part> matrices = new ArrayList<>(List.of(
+                        byScope(byScope, styles, built.byScope(), built.projects()),
+                        byVersion(byVersion, styles, built.byVersion(), built.projects()),
+                        byArtifact(byArtifact, styles, built.byArtifact(), built.projects()),
+                        exposure(exposure, RiskJoin.exposure(built))));
+                if (paths != null) {
+                    matrices.add(vulnerablePaths(paths, vulnerablePaths));
+                }
+                List<Future<ColumnWidths>> matrixWidths = render(executor, matrices);
+                finish(matrices, matrixWidths);
+                finish(severities, severityWidths);
             }
 
             // Write the output to a file
-            try (FileOutputStream fileOut = new FileOutputStream(filePath)) {
-                workbook.write(fileOut);
-            }
+            profile.time("excel.write", () -> {
+                try (FileOutputStream fileOut = new FileOutputStream(filePath)) {
+                    workbook.write(fileOut);
+                }
+            });
 
+        } finally {
+            // Closing also deletes the temporary parts of the sheets
+            workbook.close();
         }
     }
 
-    private void createByScope(Workbook workbook, List<DependencyRow> rows, List<String> projects) {
-        Sheet sheet = workbook.createSheet("By Scope");
+    private List<Future<ColumnWidths>> render(ExecutorService executor, List<Part> parts) {
+        List<Future<ColumnWidths>> widths = new ArrayList<>();
+        for (Part part : parts) {
+            widths.add(executor.submit(() -> profile.time(part.stage(), () -> part.rows().apply(part.sheet()))));
+        }
+        return widths;
+    }
 
-        // Freeze the top header row
+    private static void finish(List<Part> parts, List<Future<ColumnWidths>> widths) throws IOException {
+        for (int i = 0; i < parts.size(); i++) {
+            parts.get(i).finish(Stages.join(widths.get(i)));
+        }
+    }
+
+    // Matrix sheet with its top header row frozen
+    private static Sheet frozenSheet(Workbook workbook, String name) {
+        Sheet sheet = workbook.createSheet(name);
         sheet.createFreezePane(0, 1);
-        
-        String[] columns = {"Group ID", "Artifact ID", "Version", "Package Type", "Scope"};
+        return sheet;
+    }
+
+    // A sheet created up front: its rows render on their own thread into the sheet's own part, then the column widths
+    // and the filter, which touch the workbook, are set on the calling thread
+    private record Part(String stage, Sheet sheet, int filterColumns, Function<Sheet, ColumnWidths> rows) {
+        void finish(ColumnWidths widths) {
+            widths.apply(sheet);
+            if (filterColumns > 0) {
+                // Add filters to the top row
+                sheet.setAutoFilter(new CellRangeAddress(0, 0, 0, filterColumns - 1));
+            }
+        }
+
+        void renderAndFinish() {
+            finish(rows.apply(sheet));
+        }
+    }
+
+    // Cell styles shared by every sheet, the workbook's style table must not change while the sheets render
+    private static final class Styles {
+        private final CellStyle test;
+        private final CellStyle compile;
+        private final CellStyle provided;
+        private final CellStyle used;
+        private final CellStyle unused;
+
+        Styles(Workbook workbook) {
+            test = fill(workbook, IndexedColors.YELLOW);
+            compile = fill(workbook, IndexedColors.LIGHT_GREEN);
+            provided = fill(workbook, IndexedColors.LIGHT_ORANGE);
+            used = fill(workbook, IndexedColors.GREEN);
+            unused = fill(workbook, IndexedColors.RED);
+        }
+
+        private static CellStyle fill(Workbook workbook, IndexedColors color) {
+            CellStyle style = workbook.createCellStyle();
+            style.setFillForegroundColor(color.getIndex());
+            style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            return style;
+        }
+    }
+
+    void createByScope(Workbook workbook, List<DependencyRow> rows, List<String> projects) {
+        byScope(frozenSheet(workbook, "By Scope"), new Styles(workbook), rows, projects).renderAndFinish();
+    }
+
+    private Part byScope(Sheet sheet, Styles styles, List<DependencyRow> rows, List<String> projects) {
+        return new Part("excel.byScope", sheet, BY_SCOPE_COLUMNS.length + projects.size(), part -> renderByScope(part, styles, rows, projects));
+    }
+
+    private ColumnWidths renderByScope(Sheet sheet, Styles styles, List<DependencyRow> rows, List<String> projects) {
+        String[] columns = BY_SCOPE_COLUMNS;
+
+        ColumnWidths widths = new ColumnWidths(columns.length + projects.size());
 
         // Create header row
         Row headerRow = sheet.createRow(0);
         for (int i = 0; i < columns.length; i++) {
             headerRow.createCell(i).setCellValue(columns[i]);
+            widths.track(i, columns[i]);
         }
         for (int i = 0; i < projects.size(); i++) {
             headerRow.createCell(columns.length + i).setCellValue(projects.get(i));
+            widths.track(columns.length + i, projects.get(i));
+            widths.track(columns.length + i, Boolean.FALSE.toString().length());
         }
 
-        // Create styles
-        CellStyle testStyle = workbook.createCellStyle();
-        testStyle.setFillForegroundColor(IndexedColors.YELLOW.getIndex());
-        testStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-
-        CellStyle compileStyle = workbook.createCellStyle();
-        compileStyle.setFillForegroundColor(IndexedColors.LIGHT_GREEN.getIndex());
-        compileStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-
-        CellStyle providedStyle = workbook.createCellStyle();
-        providedStyle.setFillForegroundColor(IndexedColors.LIGHT_ORANGE.getIndex());
-        providedStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-
-        CellStyle trueStyle = workbook.createCellStyle();
-        trueStyle.setFillForegroundColor(IndexedColors.GREEN.getIndex());
-        trueStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-
-        CellStyle falseStyle = workbook.createCellStyle();
-        falseStyle.setFillForegroundColor(IndexedColors.RED.getIndex());
-        falseStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-
         // Create data rows
         for (int i = 0; i < rows.size(); i++) {
             DependencyRow row = rows.get(i);
@@ -99,84 +202,91 @@ public class ExcelExporter {
             // Determine the style based on scope
             switch (row.dependency().scope()) {
                 case "test":
-                    rowStyle = testStyle;
+                    rowStyle = styles.test;
                     break;
                 case "compile":
-                    rowStyle = compileStyle;
+                    rowStyle = styles.compile;
                     break;
                 case "provided", "runtime":
-                    rowStyle = providedStyle;
+                    rowStyle = styles.provided;
                     break;
             }
 
             // Apply style to each cell in the row
             Cell cell = excelRow.createCell(0);
             cell.setCellValue(row.dependency().groupId());
+            widths.track(0, row.dependency().groupId());
             if (rowStyle != null) cell.setCellStyle(rowStyle);
 
             cell = excelRow.createCell(1);
             cell.setCellValue(row.dependency().artifactId());
+            widths.track(1, row.dependency().artifactId());
             if (rowStyle != null) cell.setCellStyle(rowStyle);
 
             cell = excelRow.createCell(2);
             cell.setCellValue(row.dependency().version());
+            widths.track(2, row.dependency().version());
             if (rowStyle != null) cell.setCellStyle(rowStyle);
 
             cell = excelRow.createCell(3);
             cell.setCellValue(row.dependency().packageType());
+            widths.track(3, row.dependency().packageType());
             if (rowStyle != null) cell.setCellStyle(rowStyle);
 
             cell = excelRow.createCell(4);
             cell.setCellValue(row.dependency().scope());
+            widths.track(4, row.dependency().scope());
+            if (rowStyle != null) cell.setCellStyle(rowStyle);
+
+            addRisk(excelRow, columns.length - 4, row.risk(), widths, rowStyle);
+
+            cell = excelRow.createCell(columns.length - 1);
+            cell.setCellValue(row.matrix().cardinality());
             if (rowStyle != null) cell.setCellStyle(rowStyle);
 
-            for (int j = 0; j < row.matrix().length; j++) {
+            for (int j = 0; j < row.matrix().size(); j++) {
+                boolean used = row.matrix().get(j);
                 cell = excelRow.createCell(columns.length + j);
-                cell.setCellValue(row.matrix()[j]);
-                if (row.matrix()[j]) {
-                    cell.setCellStyle(trueStyle);
+                cell.setCellValue(used);
+                if (used) {
+                    cell.setCellStyle(styles.used);
                 } else {
-                    cell.setCellStyle(falseStyle);
+                    cell.setCellStyle(styles.unused);
                 }
             }
         }
 
-        // Auto-size columns
-        for (int i = 0; i < columns.length + projects.size(); i++) {
-            sheet.autoSizeColumn(i);
-        }
+        return widths;
+    }
 
-        // Add filters to the top row
-        sheet.setAutoFilter(new CellRangeAddress(0, 0, 0, (columns.length - 1) + projects.size()));
+    void createByVersion(Workbook workbook, List<DependencyRow> rows, List<String> projects) {
+        byVersion(frozenSheet(workbook, "By Version"), new Styles(workbook), rows, projects).renderAndFinish();
     }
 
-    private void createByVersion(Workbook workbook, List<DependencyRow> rows, List<String> projects) {
-        Sheet sheet = workbook.createSheet("By Version");
+    private Part byVersion(Sheet sheet, Styles styles, List<DependencyRow> rows, List<String> projects) {
+        return new Part("excel.byVersion", sheet, BY_VERSION_COLUMNS.length + projects.size(), part -> renderByVersion(part, styles, rows, projects));
+    }
 
-        // Freeze the top header row
-        sheet.createFreezePane(0, 1);
+    private ColumnWidths renderByVersion(Sheet sheet, Styles styles, List<DependencyRow> rows, List<String> projects) {
+        String[] columns = BY_VERSION_COLUMNS;
 
-        String[] columns = {"Group ID", "Artifact ID", "Version", "Package Type"};
+        ColumnWidths widths = new ColumnWidths(columns.length + projects.size());
+        int[] latest = new int[rows.size()];
+        int[] behind = new int[rows.size()];
+        versionsBehind(rows, latest, behind);
 
         // Create header row
         Row headerRow = sheet.createRow(0);
         for (int i = 0; i < columns.length; i++) {
             headerRow.createCell(i).setCellValue(columns[i]);
+            widths.track(i, columns[i]);
         }
         for (int i = 0; i < projects.size(); i++) {
             headerRow.createCell(columns.length + i).setCellValue(projects.get(i));
+            widths.track(columns.length + i, projects.get(i));
+            widths.track(columns.length + i, Boolean.FALSE.toString().length());
         }
 
-        // Create styles
-
-        CellStyle trueStyle = workbook.createCellStyle();
-        trueStyle.setFillForegroundColor(IndexedColors.GREEN.getIndex());
-        trueStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-
-        CellStyle falseStyle = workbook.createCellStyle();
-        falseStyle.setFillForegroundColor(IndexedColors.RED.getIndex());
-        falseStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-
         // Create data rows
         for (int i = 0; i < rows.size(); i++) {
             DependencyRow row = rows.get(i);
@@ -185,62 +295,97 @@ public class ExcelExporter {
             // Apply style to each cell in the row
             Cell cell = excelRow.createCell(0);
             cell.setCellValue(row.dependency().groupId());
+            widths.track(0, row.dependency().groupId());
 
             cell = excelRow.createCell(1);
             cell.setCellValue(row.dependency().artifactId());
+            widths.track(1, row.dependency().artifactId());
 
             cell = excelRow.createCell(2);
             cell.setCellValue(row.dependency().version());
+            widths.track(2, row.dependency().version());
 
             cell = excelRow.createCell(3);
             cell.setCellValue(row.dependency().packageType());
+            widths.track(3, row.dependency().packageType());
 
-            for (int j = 0; j < row.matrix().length; j++) {
+            String latestVersion = rows.get(latest[i]).dependency().version();
+            cell = excelRow.createCell(4);
+            cell.setCellValue(latestVersion);
+            widths.track(4, latestVersion);
+
+            cell = excelRow.createCell(5);
+            cell.setCellValue(behind[i]);
+
+            addRisk(excelRow, columns.length - 4, row.risk(), widths, null);
+
+            cell = excelRow.createCell(columns.length - 1);
+            cell.setCellValue(row.matrix().cardinality());
+
+            for (int j = 0; j < row.matrix().size(); j++) {
+                boolean used = row.matrix().get(j);
                 cell = excelRow.createCell(columns.length + j);
-                cell.setCellValue(row.matrix()[j]);
-                if (row.matrix()[j]) {
-                    cell.setCellStyle(trueStyle);
+                cell.setCellValue(used);
+                if (used) {
+                    cell.setCellStyle(styles.used);
                 } else {
-                    cell.setCellStyle(falseStyle);
+                    cell.setCellStyle(styles.unused);
                 }
             }
         }
 
-        // Auto-size columns
-        for (int i = 0; i < columns.length + projects.size(); i++) {
-            sheet.autoSizeColumn(i);
+        return widths;
+    }
+
+    // By Version rows are sorted by artifact, then by version in Maven order, so the last row of an artifact holds
+    // its latest version in the fleet. Each row gets the index of that row and the number of distinct newer versions
+    // of its artifact; versions Maven considers equal, such as 1.0 and 1, count once.
+    static void versionsBehind(List<DependencyRow> rows, int[] latest, int[] behind) {
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            Dependency dependency = rows.get(i).dependency();
+            Dependency next = i + 1 < rows.size() ? rows.get(i + 1).dependency() : null;
+            if (next == null || dependency.compareArtifact(next) != 0) {
+                latest[i] = i;
+                behind[i] = 0;
+            } else {
+                latest[i] = latest[i + 1];
+                behind[i] = behind[i + 1] + (sameVersion(dependency, next) ? 0 : 1);
+            }
+        }
+    }
+
+    private static boolean sameVersion(Dependency a, Dependency b) {
+        if (a.versionKey() == null || b.versionKey() == null) {
+            return a.versionKey() == b.versionKey();
         }
+        return a.versionKey().compareTo(b.versionKey()) == 0;
+    }
 
-        // Add filters to the top row
-        sheet.setAutoFilter(new CellRangeAddress(0, 0, 0, (columns.length - 1) + projects.size()));
+    void createByArtifact(Workbook workbook, List<DependencyRow> rows, List<String> projects) {
+        byArtifact(frozenSheet(workbook, "By Artifact"), new Styles(workbook), rows, projects).renderAndFinish();
     }
 
-    private void createByArtifact(Workbook workbook, List<DependencyRow> rows, List<String> projects) {
-        Sheet sheet = workbook.createSheet("By Artifact");
+    private Part byArtifact(Sheet sheet, Styles styles, List<DependencyRow> rows, List<String> projects) {
+        return new Part("excel.byArtifact", sheet, BY_ARTIFACT_COLUMNS.length + projects.size(), part -> renderByArtifact(part, styles, rows, projects));
+    }
 
-        // Freeze the top header row
-        sheet.createFreezePane(0, 1);
+    private ColumnWidths renderByArtifact(Sheet sheet, Styles styles, List<DependencyRow> rows, List<String> projects) {
+        String[] columns = BY_ARTIFACT_COLUMNS;
 
-        String[] columns = {"Group ID", "Artifact ID", "Package Type"};
+        ColumnWidths widths = new ColumnWidths(columns.length + projects.size());
 
         // Create header row
         Row headerRow = sheet.createRow(0);
         for (int i = 0; i < columns.length; i++) {
             headerRow.createCell(i).setCellValue(columns[i]);
+            widths.track(i, columns[i]);
         }
         for (int i = 0; i < projects.size(); i++) {
             headerRow.createCell(columns.length + i).setCellValue(projects.get(i));
+            widths.track(columns.length + i, projects.get(i));
+            widths.track(columns.length + i, Boolean.FALSE.toString().length());
         }
 
-        // Create styles
-        CellStyle trueStyle = workbook.createCellStyle();
-        trueStyle.setFillForegroundColor(IndexedColors.GREEN.getIndex());
-        trueStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-
-        CellStyle falseStyle = workbook.createCellStyle();
-        falseStyle.setFillForegroundColor(IndexedColors.RED.getIndex());
-        falseStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-
         // Create data rows
         for (int i = 0; i < rows.size(); i++) {
             DependencyRow row = rows.get(i);
@@ -249,113 +394,202 @@ public class ExcelExporter {
             // Apply style to each cell in the row
             Cell cell = excelRow.createCell(0);
             cell.setCellValue(row.dependency().groupId());
+            widths.track(0, row.dependency().groupId());
 
             cell = excelRow.createCell(1);
             cell.setCellValue(row.dependency().artifactId());
+            widths.track(1, row.dependency().artifactId());
 
             cell = excelRow.createCell(2);
             cell.setCellValue(row.dependency().packageType());
+            widths.track(2, row.dependency().packageType());
+
+            addRisk(excelRow, columns.length - 4, row.risk(), widths, null);
+
+            cell = excelRow.createCell(columns.length - 1);
+            cell.setCellValue(row.matrix().cardinality());
 
-            for (int j = 0; j < row.matrix().length; j++) {
+            for (int j = 0; j < row.matrix().size(); j++) {
+                boolean used = row.matrix().get(j);
                 cell = excelRow.createCell(columns.length + j);
-                cell.setCellValue(row.matrix()[j]);
-                if (row.matrix()[j]) {
-                    cell.setCellStyle(trueStyle);
+                cell.setCellValue(used);
+                if (used) {
+                    cell.setCellStyle(styles.used);
                 } else {
-                    cell.setCellStyle(falseStyle);
+                    cell.setCellStyle(styles.unused);
                 }
             }
         }
 
-        // Auto-size columns
-        for (int i = 0; i < columns.length + projects.size(); i++) {
-            sheet.autoSizeColumn(i);
+        return widths;
+    }
+
+    // Max Severity, Max CVSSv3 and CVEs cells of a matrix row, left blank when no vulnerability is known
+    private void addRisk(Row excelRow, int column, Risk risk, ColumnWidths widths, CellStyle style) {
+        Cell severity = excelRow.createCell(column);
+        Cell score = excelRow.createCell(column + 1);
+        Cell count = excelRow.createCell(column + 2);
+        if (risk.cveCount() > 0) {
+            severity.setCellValue(risk.maxSeverity());
+            widths.track(column, risk.maxSeverity());
+            if (risk.maxCvssv3Score() != null) {
+                score.setCellValue(risk.maxCvssv3Score().doubleValue());
+            }
+            count.setCellValue(risk.cveCount());
         }
+        if (style != null) {
+            severity.setCellStyle(style);
+            score.setCellStyle(style);
+            count.setCellStyle(style);
+        }
+    }
 
-        // Add filters to the top row
-        sheet.setAutoFilter(new CellRangeAddress(0, 0, 0, (columns.length - 1) + projects.size()));
+    private Part exposure(Sheet sheet, List<ProjectExposure> exposures) {
+        return new Part("excel.exposure", sheet, EXPOSURE_COLUMNS.length, part -> renderExposure(part, exposures));
     }
 
-    private List<DependencyRow> removeScopeAndMerge(List<DependencyRow> dependencies) {
-        Map<String, DependencyRow> merged = new java.util.HashMap<>();
-        for (DependencyRow dependency : dependencies) {
-            String key = dependency.dependency().uniqueVersionId();
-            if (merged.containsKey(key)) {
-                DependencyRow existing = merged.get(key);
-                DependencyRow mergedDependency = DependencyRow.merge(existing.dependency().withoutScope(), existing.matrix(), dependency.matrix());
-                merged.put(key, mergedDependency);
-            } else {
-                merged.put(key, new DependencyRow(dependency.dependency().withoutScope(), dependency.matrix()));
+    private ColumnWidths renderExposure(Sheet sheet, List<ProjectExposure> exposures) {
+        String[] columns = EXPOSURE_COLUMNS;
+
+        ColumnWidths widths = new ColumnWidths(columns.length);
+
+        // Create header row
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < columns.length; i++) {
+            headerRow.createCell(i).setCellValue(columns[i]);
+            widths.track(i, columns[i]);
+        }
+
+        // Create data rows
+        for (int i = 0; i < exposures.size(); i++) {
+            ProjectExposure exposure = exposures.get(i);
+            Row excelRow = sheet.createRow(i + 1);
+
+            excelRow.createCell(0).setCellValue(exposure.project());
+            widths.track(0, exposure.project());
+            excelRow.createCell(1).setCellValue(exposure.critical());
+            excelRow.createCell(2).setCellValue(exposure.high());
+            excelRow.createCell(3).setCellValue(exposure.medium());
+            excelRow.createCell(4).setCellValue(exposure.low());
+            excelRow.createCell(5).setCellValue(exposure.vulnerableDependencies());
+            Cell maxScore = excelRow.createCell(6);
+            if (exposure.maxCvssv3Score() != null) {
+                maxScore.setCellValue(exposure.maxCvssv3Score().doubleValue());
             }
         }
-        return merged.values().stream().sorted().toList();
+
+        return widths;
     }
-    private List<DependencyRow> removeScopeAndVersionAndMerge(List<DependencyRow> dependencies) {
-        Map<String, DependencyRow> merged = new java.util.HashMap<>();
-        for (DependencyRow dependency : dependencies) {
-            String key = dependency.dependency().uniqueArtifactId();
-            if (merged.containsKey(key)) {
-                DependencyRow existing = merged.get(key);
-                DependencyRow mergedDependency = DependencyRow.merge(existing.dependency().withoutVersionAndScope(), existing.matrix(), dependency.matrix());
-                merged.put(key, mergedDependency);
-            } else {
-                merged.put(key, new DependencyRow(dependency.dependency().withoutVersionAndScope(), dependency.matrix()));
+
+    // The paths are still being found when the part is submitted, its thread waits for them
+    private Part vulnerablePaths(Sheet sheet, Future<List<VulnerablePath>> paths) {
+        return new Part("excel.vulnerablePaths", sheet, VULNERABLE_PATHS_COLUMNS.length, part -> {
+            try {
+                return renderVulnerablePaths(part, Stages.join(paths));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private ColumnWidths renderVulnerablePaths(Sheet sheet, List<VulnerablePath> paths) {
+        String[] columns = VULNERABLE_PATHS_COLUMNS;
+
+        ColumnWidths widths = new ColumnWidths(columns.length);
+
+        // Create header row
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < columns.length; i++) {
+            headerRow.createCell(i).setCellValue(columns[i]);
+            widths.track(i, columns[i]);
+        }
+
+        // Create data rows, the path runs from the direct dependency to the vulnerable one
+        for (int i = 0; i < paths.size(); i++) {
+            VulnerablePath path = paths.get(i);
+            Dependency dependency = path.row().dependency();
+            Row excelRow = sheet.createRow(i + 1);
+
+            String[] values = {path.project(), dependency.groupId(), dependency.artifactId(), dependency.version(), dependency.packageType(), dependency.scope()};
+            for (int j = 0; j < values.length; j++) {
+                excelRow.createCell(j).setCellValue(values[j]);
+                widths.track(j, values[j]);
             }
+            addRisk(excelRow, 6, path.row().risk(), widths, null);
+
+            String direct = path.direct().uniqueVersionId();
+            excelRow.createCell(9).setCellValue(direct);
+            widths.track(9, direct);
+            excelRow.createCell(10).setCellValue(path.path().size());
+            String chain = path.path().stream().map(Dependency::uniqueVersionId).collect(Collectors.joining(" > "));
+            excelRow.createCell(11).setCellValue(chain);
+            widths.track(11, chain);
         }
-        return merged.values().stream().sorted().toList();
+
+        return widths;
     }
 
-    private void addVulnerabilities(Workbook workbook, String severity, List<Vulnerability> vulnerabilities) {
+    void addVulnerabilities(Workbook workbook, String severity, List<Vulnerability> vulnerabilities) {
         if (vulnerabilities != null && !vulnerabilities.isEmpty()) {
-            Sheet sheet = workbook.createSheet(severity);
+            vulnerabilities(workbook.createSheet(severity), severity, vulnerabilities).renderAndFinish();
+        }
+    }
 
-            Map<String, List<Vulnerability>> groupedByFileName = vulnerabilities.stream()
-                    .collect(Collectors.groupingBy(
-                            Vulnerability::fileName,
-                            Collectors.mapping(
-                                    v -> v,
-                                    Collectors.collectingAndThen(Collectors.toList(), list -> {
-                                        list.sort(null); // Sort using the Vulnerability's Comparable implementation
-                                        return list;
-                                    })
-                            )
-                    ));
+    private Part vulnerabilities(Sheet sheet, String severity, List<Vulnerability> vulnerabilities) {
+        return new Part("excel." + severity, sheet, 0, part -> renderVulnerabilities(part, vulnerabilities));
+    }
 
-            List<String> sortedKeys = new ArrayList<>(groupedByFileName.keySet());
-            sortedKeys.sort(Comparator.naturalOrder()); // Sort the keys alphabetically
+    private ColumnWidths renderVulnerabilities(Sheet sheet, List<Vulnerability> vulnerabilities) {
+        Map<String, List<Vulnerability>> groupedByFileName = vulnerabilities.stream()
+                .collect(Collectors.groupingBy(
+                        Vulnerability::fileName,
+                        Collectors.mapping(
+                                v -> v,
+                                Collectors.collectingAndThen(Collectors.toList(), list -> {
+                                    list.sort(null); // Sort using the Vulnerability's Comparable implementation
+                                    return list;
+                                })
+                        )
+                ));
 
-            int row = 0;
+        List<String> sortedKeys = new ArrayList<>(groupedByFileName.keySet());
+        sortedKeys.sort(Comparator.naturalOrder()); // Sort the keys alphabetically
 
-            Row excelRow = sheet.createRow(row);
+        ColumnWidths widths = new ColumnWidths(5);
 
-            for (String key : sortedKeys) {
-                excelRow = sheet.createRow(++row);
-                Cell cell = excelRow.createCell(0);
-                cell.setCellValue(key);
-                for (Vulnerability vulnerability : groupedByFileName.get(key)) {
+        int row = 0;
 
-                    Cell name = excelRow.createCell(1);
-                    name.setCellValue(vulnerability.name());
+        Row excelRow = sheet.createRow(row);
 
-                    Cell sev = excelRow.createCell(2);
-                    sev.setCellValue(vulnerability.severity());
+        for (String key : sortedKeys) {
+            excelRow = sheet.createRow(++row);
+            Cell cell = excelRow.createCell(0);
+            cell.setCellValue(key);
+            widths.track(0, key);
+            for (Vulnerability vulnerability : groupedByFileName.get(key)) {
 
-                    Cell cvssv3Score = excelRow.createCell(3);
-                    cvssv3Score.setCellValue(Optional.ofNullable(vulnerability.cvssv3Score()).map(BigDecimal::toString).orElse(null));
+                Cell name = excelRow.createCell(1);
+                name.setCellValue(vulnerability.name());
+                widths.track(1, vulnerability.name());
 
-                    Cell description = excelRow.createCell(4);
-                    description.setCellValue(vulnerability.description());
+                Cell sev = excelRow.createCell(2);
+                sev.setCellValue(vulnerability.severity());
+                widths.track(2, vulnerability.severity());
 
-                    excelRow = sheet.createRow(++row);
+                String score = Optional.ofNullable(vulnerability.cvssv3Score()).map(BigDecimal::toString).orElse(null);
+                Cell cvssv3Score = excelRow.createCell(3);
+                cvssv3Score.setCellValue(score);
+                widths.track(3, score);
 
-                }
-            }
+                Cell description = excelRow.createCell(4);
+                description.setCellValue(vulnerability.description());
+                widths.track(4, vulnerability.description());
 
-            // Auto-size columns
-            for (int i = 0; i < 5; i++) {
-                sheet.autoSizeColumn(i);
-            }
+                excelRow = sheet.createRow(++row);
 
+            }
         }
+
+        return widths;
     }
 }
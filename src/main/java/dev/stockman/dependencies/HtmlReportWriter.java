@@ -0,0 +1,153 @@
+package dev.stockman.dependencies;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+// A single static page with one table per sheet of the xlsx report, colored the same way
+public class HtmlReportWriter implements ReportWriter {
+
+    private static final String STYLE = """
+            table { border-collapse: collapse; font: 12px sans-serif; }
+            th, td { border: 1px solid #ccc; padding: 2px 6px; white-space: nowrap; }
+            th { position: sticky; top: 0; background: #eee; }
+            td.description { white-space: normal; }
+            .test { background: yellow; } .compile { background: lightgreen; } .provided { background: #ffcc99; }
+            .true { background: green; } .false { background: red; }
+            """;
+
+    @Override
+    public void write(Rollups rollups, Map<String, List<Vulnerability>> vulnerabilities, Path output) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(output)) {
+            writer.write("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n<title>Dependency Report</title>\n<style>\n");
+            writer.write(STYLE);
+            writer.write("</style>\n</head>\n<body>\n");
+
+            writeMatrix(writer, "By Scope", rollups.byScope(), rollups.projects(), true);
+            writeMatrix(writer, "By Version", rollups.byVersion(), rollups.projects(), false);
+            writeMatrix(writer, "By Artifact", rollups.byArtifact(), rollups.projects(), false);
+
+            writer.write("<h2>Exposure</h2>\n<table>\n");
+            writeHeader(writer, List.of("Project", "Critical", "High", "Medium", "Low", "Vulnerable Dependencies", "Max CVSSv3"));
+            for (ProjectExposure exposure : RiskJoin.exposure(rollups)) {
+                writer.write("<tr>");
+                writeCell(writer, exposure.project());
+                writeCell(writer, Integer.toString(exposure.critical()));
+                writeCell(writer, Integer.toString(exposure.high()));
+                writeCell(writer, Integer.toString(exposure.medium()));
+                writeCell(writer, Integer.toString(exposure.low()));
+                writeCell(writer, Integer.toString(exposure.vulnerableDependencies()));
+                writeCell(writer, score(exposure.maxCvssv3Score()));
+                writer.write("</tr>\n");
+            }
+            writer.write("</table>\n");
+
+            for (Map.Entry<String, List<Vulnerability>> section : ReportSections.vulnerabilities(vulnerabilities).entrySet()) {
+                writer.write("<h2>" + escape(section.getKey()) + "</h2>\n<table>\n");
+                writeHeader(writer, List.of("File Name", "Name", "Severity", "CVSSv3", "Description"));
+                for (Vulnerability vulnerability : section.getValue()) {
+                    writer.write("<tr>");
+                    writeCell(writer, vulnerability.fileName());
+                    writeCell(writer, vulnerability.name());
+                    writeCell(writer, vulnerability.severity());
+                    writeCell(writer, score(vulnerability.cvssv3Score()));
+                    writer.write("<td class=\"description\">" + escape(vulnerability.description()) + "</td>");
+                    writer.write("</tr>\n");
+                }
+                writer.write("</table>\n");
+            }
+
+            writer.write("</body>\n</html>\n");
+        }
+    }
+
+    private static void writeMatrix(BufferedWriter writer, String title, List<DependencyRow> rows, List<String> projects, boolean withScope) throws IOException {
+        writer.write("<h2>" + title + "</h2>\n<table>\n<tr>");
+        for (String column : withScope ? List.of("Group ID", "Artifact ID", "Version", "Package Type", "Scope") : List.of("Group ID", "Artifact ID", "Version", "Package Type")) {
+            writer.write("<th>" + column + "</th>");
+        }
+        for (String column : List.of("Max Severity", "Max CVSSv3", "CVEs", "Projects")) {
+            writer.write("<th>" + column + "</th>");
+        }
+        for (String project : projects) {
+            writer.write("<th>" + escape(project) + "</th>");
+        }
+        writer.write("</tr>\n");
+
+        for (DependencyRow row : rows) {
+            Dependency dependency = row.dependency();
+            String scope = dependency.scope() == null ? "" : switch (dependency.scope()) {
+                case "test" -> " class=\"test\"";
+                case "compile" -> " class=\"compile\"";
+                case "provided", "runtime" -> " class=\"provided\"";
+                default -> "";
+            };
+            writer.write("<tr" + scope + ">");
+            writeCell(writer, dependency.groupId());
+            writeCell(writer, dependency.artifactId());
+            writeCell(writer, dependency.version());
+            writeCell(writer, dependency.packageType());
+            if (withScope) {
+                writeCell(writer, dependency.scope());
+            }
+            Risk risk = row.risk();
+            writeCell(writer, risk.cveCount() > 0 ? risk.maxSeverity() : null);
+            writeCell(writer, risk.cveCount() > 0 ? score(risk.maxCvssv3Score()) : null);
+            writeCell(writer, risk.cveCount() > 0 ? Integer.toString(risk.cveCount()) : null);
+            writeCell(writer, Integer.toString(row.matrix().cardinality()));
+            for (int i = 0; i < row.matrix().size(); i++) {
+                writer.write(row.matrix().get(i) ? "<td class=\"true\">true</td>" : "<td class=\"false\">false</td>");
+            }
+            writer.write("</tr>\n");
+        }
+        writer.write("</table>\n");
+    }
+
+    private static void writeHeader(BufferedWriter writer, List<String> columns) throws IOException {
+        writer.write("<tr>");
+        for (String column : columns) {
+            writer.write("<th>" + column + "</th>");
+        }
+        writer.write("</tr>\n");
+    }
+
+    private static void writeCell(BufferedWriter writer, String value) throws IOException {
+        writer.write("<td>" + escape(value) + "</td>");
+    }
+
+    private static String score(BigDecimal score) {
+        return score == null ? null : score.toString();
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder escaped = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = switch (c) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                default -> null;
+            };
+            if (replacement != null && escaped == null) {
+                escaped = new StringBuilder(value.length() + 16).append(value, 0, i);
+            }
+            if (escaped != null) {
+                if (replacement != null) {
+                    escaped.append(replacement);
+                } else {
+                    escaped.append(c);
+                }
+            }
+        }
+        return escaped == null ? value : escaped.toString();
+    }
+}
@@ -0,0 +1,264 @@
+package dev.stockman.dependencies;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// watch command: keeps the rollups of the projects in the collector's cache in memory and rewrites the report when
+// cache entries change. A changed project is applied as a delta: its bit is cleared on the rows it no longer uses
+// and set on the rows it now uses, at the By Scope, By Version and By Artifact level, and its vulnerabilities are
+// added to or removed from a reference counted set. An update costs time in the size of the project, not of the
+// fleet. Rows are kept sorted in tree maps, so nothing is sorted again.
+//
+// Projects are added as columns in the order they are first seen. Only removing a project rebuilds the rollups, to
+// drop its column. Entries of projects no longer in the workspace are left out, and the workspace is watched too so
+// a deleted project drops out of the report at once rather than when its entry is evicted.
+public final class IncrementalReport {
+    // Cache entries are replaced one project at a time, an update waits until they were quiet for this long
+    private static final long QUIET_MILLIS = 1000;
+
+    private final CollectionCache cache;
+    private final Path workspace;
+    private final Pattern projectsToIgnore;
+    private final ReportGenerator generator;
+    private final Path output;
+    private final CoordinateDictionary dictionary = new CoordinateDictionary();
+
+    private final List<String> projects = new ArrayList<>();
+    private final Map<String, Integer> projectsPosition = new HashMap<>();
+    private final Map<String, Set<Dependency>> dependenciesByProject = new HashMap<>();
+    private final Map<String, Set<Vulnerability>> vulnerabilitiesByProject = new HashMap<>();
+    private final Map<Vulnerability, Integer> vulnerabilities = new HashMap<>();
+    private final Level byScope = new Level(Comparator.naturalOrder(), UnaryOperator.identity());
+    private final Level byVersion = new Level(Dependency::compareVersion, Dependency::withoutScope);
+    private final Level byArtifact = new Level(Dependency::compareArtifact, Dependency::withoutVersionAndScope);
+
+    public IncrementalReport(CollectionCache cache, Path workspace, Pattern projectsToIgnore, ReportGenerator generator, Path output) {
+        this.cache = cache;
+        this.workspace = workspace;
+        this.projectsToIgnore = projectsToIgnore;
+        this.generator = generator;
+        this.output = output;
+    }
+
+    // Writes the report of every cached project, then updates it until the process is stopped
+    public void watch() throws IOException, InterruptedException {
+        Files.createDirectories(cache.directory());
+        try (WatchService watcher = cache.directory().getFileSystem().newWatchService()) {
+            WatchKey entriesKey = cache.directory().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            workspace.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+            try (Stream<Path> entries = Files.list(cache.directory())) {
+                for (Path entry : entries.sorted().toList()) {
+                    String project = CollectionCache.project(entry);
+                    if (project != null) {
+                        update(project);
+                    }
+                }
+            }
+            write();
+            while (true) {
+                Set<String> changed = new TreeSet<>();
+                changed(watcher.take(), entriesKey, changed);
+                WatchKey key;
+                while ((key = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed(key, entriesKey, changed);
+                }
+                long start = System.nanoTime();
+                boolean updated = false;
+                for (String project : changed) {
+                    updated |= update(project);
+                }
+                if (updated) {
+                    write();
+                    System.out.println("Updated " + changed + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+
+    // Projects of the changed cache entries, or of the project directories created or deleted in the workspace
+    private static void changed(WatchKey key, WatchKey entriesKey, Set<String> projects) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.context() instanceof Path file) {
+                String project = key == entriesKey ? CollectionCache.project(file) : file.toString();
+                if (project != null) {
+                    projects.add(project);
+                }
+            }
+        }
+        key.reset();
+    }
+
+    // Applies the current cache entry of the project, false when nothing changed
+    boolean update(String project) throws IOException {
+        if (projectsToIgnore.matcher(project).matches()) {
+            return false;
+        }
+        Optional<CollectedProject> collected = Files.isRegularFile(workspace.resolve(project).resolve("pom.xml")) ? cache.read(project) : Optional.empty();
+        if (collected.isEmpty()) {
+            if (!projectsPosition.containsKey(project)) {
+                return false;
+            }
+            remove(project);
+            return true;
+        }
+        Set<Dependency> dependencies = new HashSet<>();
+        for (String line : collected.get().dependencies()) {
+            if (!line.isBlank()) {
+                String[] parts = line.split(",");
+                dependencies.add(dictionary.dependency(parts[1], parts[2], parts[3], parts[4], parts[5]));
+            }
+        }
+        Set<Vulnerability> projectVulnerabilities = new HashSet<>();
+        for (String report : collected.get().vulnerabilityReports()) {
+            OwaspTransformer.stream(new ByteArrayInputStream(report.getBytes(StandardCharsets.UTF_8)), projectVulnerabilities::add);
+        }
+        return apply(project, dependencies, projectVulnerabilities);
+    }
+
+    private boolean apply(String project, Set<Dependency> dependencies, Set<Vulnerability> projectVulnerabilities) {
+        Set<Dependency> previous = dependenciesByProject.getOrDefault(project, Set.of());
+        Set<Vulnerability> previousVulnerabilities = vulnerabilitiesByProject.getOrDefault(project, Set.of());
+        if (projectsPosition.containsKey(project) && previous.equals(dependencies) && previousVulnerabilities.equals(projectVulnerabilities)) {
+            return false;
+        }
+        Integer position = projectsPosition.get(project);
+        if (position == null) {
+            position = projects.size();
+            projects.add(project);
+            projectsPosition.put(project, position);
+            if (projects.size() > byScope.capacity) {
+                // Matrices grow by doubling, so adding projects one by one costs amortized constant time per row
+                int capacity = Math.max(projects.size(), byScope.capacity * 2);
+                byScope.resize(capacity);
+                byVersion.resize(capacity);
+                byArtifact.resize(capacity);
+            }
+        }
+        byScope.apply(position, previous, dependencies);
+        byVersion.apply(position, previous, dependencies);
+        byArtifact.apply(position, previous, dependencies);
+        dependenciesByProject.put(project, dependencies);
+
+        for (Vulnerability vulnerability : previousVulnerabilities) {
+            if (!projectVulnerabilities.contains(vulnerability)) {
+                vulnerabilities.computeIfPresent(vulnerability, (v, count) -> count == 1 ? null : count - 1);
+            }
+        }
+        for (Vulnerability vulnerability : projectVulnerabilities) {
+            if (!previousVulnerabilities.contains(vulnerability)) {
+                vulnerabilities.merge(vulnerability, 1, Integer::sum);
+            }
+        }
+        vulnerabilitiesByProject.put(project, projectVulnerabilities);
+        return true;
+    }
+
+    // Drops the project and its column, every other project is applied again
+    private void remove(String project) {
+        dependenciesByProject.remove(project);
+        vulnerabilitiesByProject.remove(project);
+        List<String> remaining = new ArrayList<>(projects);
+        remaining.remove(project);
+        Map<String, Set<Dependency>> dependencies = new HashMap<>(dependenciesByProject);
+        Map<String, Set<Vulnerability>> projectVulnerabilities = new HashMap<>(vulnerabilitiesByProject);
+        projects.clear();
+        projectsPosition.clear();
+        dependenciesByProject.clear();
+        vulnerabilitiesByProject.clear();
+        vulnerabilities.clear();
+        byScope.clear();
+        byVersion.clear();
+        byArtifact.clear();
+        for (String other : remaining) {
+            apply(other, dependencies.get(other), projectVulnerabilities.get(other));
+        }
+    }
+
+    private void write() throws IOException {
+        Rollups rollups = new Rollups(List.copyOf(projects), byScope.rows(projects.size()), byVersion.rows(projects.size()), byArtifact.rows(projects.size()));
+        Set<Vulnerability> distinct = new HashSet<>(vulnerabilities.keySet());
+        generator.write(RiskJoin.annotate(rollups, distinct), distinct, output);
+    }
+
+    // Rows of one rollup level, keyed by the dependency reduced to the coordinates of the level. Matrices hold
+    // capacity projects, which may be more than there are.
+    private static final class Level {
+        private final TreeMap<Dependency, ProjectMatrix> rows;
+        private final UnaryOperator<Dependency> key;
+        private int capacity;
+
+        Level(Comparator<Dependency> order, UnaryOperator<Dependency> key) {
+            this.rows = new TreeMap<>(order);
+            this.key = key;
+        }
+
+        void apply(int project, Set<Dependency> previous, Set<Dependency> current) {
+            Set<Dependency> previousKeys = keys(previous);
+            Set<Dependency> currentKeys = keys(current);
+            for (Dependency dependency : previousKeys) {
+                if (!currentKeys.contains(dependency)) {
+                    ProjectMatrix matrix = rows.get(dependency);
+                    matrix.clear(project);
+                    if (matrix.isEmpty()) {
+                        rows.remove(dependency);
+                    }
+                }
+            }
+            for (Dependency dependency : currentKeys) {
+                if (!previousKeys.contains(dependency)) {
+                    rows.computeIfAbsent(dependency, d -> new ProjectMatrix(capacity)).set(project);
+                }
+            }
+        }
+
+        // Keys in the order of the level, so dependencies equal at this level count once
+        private Set<Dependency> keys(Set<Dependency> dependencies) {
+            Set<Dependency> keys = new TreeSet<>(rows.comparator());
+            for (Dependency dependency : dependencies) {
+                keys.add(key.apply(dependency));
+            }
+            return keys;
+        }
+
+        void resize(int capacity) {
+            this.capacity = capacity;
+            rows.replaceAll((dependency, matrix) -> matrix.resize(capacity));
+        }
+
+        void clear() {
+            rows.clear();
+            capacity = 0;
+        }
+
+        // Rows in the order of the level with matrices of exactly the given number of projects
+        List<DependencyRow> rows(int projects) {
+            List<DependencyRow> list = new ArrayList<>(rows.size());
+            rows.forEach((dependency, matrix) -> list.add(new DependencyRow(dependency, matrix.resize(projects))));
+            return list;
+        }
+    }
+}
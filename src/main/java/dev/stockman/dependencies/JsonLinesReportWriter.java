@@ -0,0 +1,107 @@
+package dev.stockman.dependencies;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonFactoryBuilder;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+// One JSON object per line: the projects first, then the byScope, byVersion, byArtifact, exposure and vulnerability
+// records, each tagged with its type. Matrix rows list the projects using them instead of one flag per project.
+public class JsonLinesReportWriter implements ReportWriter {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactoryBuilder().rootValueSeparator((String) null).build();
+
+    @Override
+    public void write(Rollups rollups, Map<String, List<Vulnerability>> vulnerabilities, Path output) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(output);
+             JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.writeStartObject();
+            generator.writeStringField("type", "projects");
+            generator.writeArrayFieldStart("projects");
+            for (String project : rollups.projects()) {
+                generator.writeString(project);
+            }
+            generator.writeEndArray();
+            endLine(generator);
+
+            writeMatrix(generator, "byScope", rollups.byScope(), rollups.projects());
+            writeMatrix(generator, "byVersion", rollups.byVersion(), rollups.projects());
+            writeMatrix(generator, "byArtifact", rollups.byArtifact(), rollups.projects());
+
+            for (ProjectExposure exposure : RiskJoin.exposure(rollups)) {
+                generator.writeStartObject();
+                generator.writeStringField("type", "exposure");
+                generator.writeStringField("project", exposure.project());
+                generator.writeNumberField("critical", exposure.critical());
+                generator.writeNumberField("high", exposure.high());
+                generator.writeNumberField("medium", exposure.medium());
+                generator.writeNumberField("low", exposure.low());
+                generator.writeNumberField("vulnerableDependencies", exposure.vulnerableDependencies());
+                writeScore(generator, "maxCvssv3Score", exposure.maxCvssv3Score());
+                endLine(generator);
+            }
+
+            for (List<Vulnerability> section : ReportSections.vulnerabilities(vulnerabilities).values()) {
+                for (Vulnerability vulnerability : section) {
+                    generator.writeStartObject();
+                    generator.writeStringField("type", "vulnerability");
+                    writeString(generator, "fileName", vulnerability.fileName());
+                    writeString(generator, "name", vulnerability.name());
+                    writeString(generator, "severity", vulnerability.severity());
+                    writeScore(generator, "cvssv3Score", vulnerability.cvssv3Score());
+                    writeString(generator, "description", vulnerability.description());
+                    endLine(generator);
+                }
+            }
+        }
+    }
+
+    private static void writeMatrix(JsonGenerator generator, String type, List<DependencyRow> rows, List<String> projects) throws IOException {
+        for (DependencyRow row : rows) {
+            Dependency dependency = row.dependency();
+            generator.writeStartObject();
+            generator.writeStringField("type", type);
+            writeString(generator, "groupId", dependency.groupId());
+            writeString(generator, "artifactId", dependency.artifactId());
+            writeString(generator, "version", dependency.version());
+            writeString(generator, "packageType", dependency.packageType());
+            writeString(generator, "scope", dependency.scope());
+            if (row.risk().cveCount() > 0) {
+                writeString(generator, "maxSeverity", row.risk().maxSeverity());
+                writeScore(generator, "maxCvssv3Score", row.risk().maxCvssv3Score());
+                generator.writeNumberField("cves", row.risk().cveCount());
+            }
+            generator.writeArrayFieldStart("projects");
+            for (int i = row.matrix().nextSetBit(0); i >= 0; i = row.matrix().nextSetBit(i + 1)) {
+                generator.writeString(projects.get(i));
+            }
+            generator.writeEndArray();
+            endLine(generator);
+        }
+    }
+
+    // Fields rolled up or unknown are left out
+    private static void writeString(JsonGenerator generator, String field, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(field, value);
+        }
+    }
+
+    private static void writeScore(JsonGenerator generator, String field, BigDecimal score) throws IOException {
+        if (score != null) {
+            generator.writeNumberField(field, score);
+        }
+    }
+
+    private static void endLine(JsonGenerator generator) throws IOException {
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+}
@@ -0,0 +1,239 @@
+package dev.stockman.dependencies;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// Byte level parser of the project,groupId,artifactId,version,packageType,scope lines of the dependency CSV. The file
+// is split at line boundaries into ranges that are memory mapped and parsed independently, so ranges can be parsed in
+// parallel. Lines are scanned in place: a project or a groupId..scope tuple is only decoded into Strings the first
+// time a range meets it, later lines with the same bytes reuse the decoded value.
+// A MappedByteBuffer is enough rather than a MemorySegment: a range is sized from the line budget of the ingest and
+// its parsed lines are held on the heap, so it stays far below the 2 GB a buffer can map.
+final class MappedCsv {
+    // Largest range, a mapping must stay below 2 GB. Only a line budget of gigabytes reaches it, the file itself can be
+    // any size.
+    static final long MAX_RANGE_BYTES = 1L << 30;
+    private static final int SAMPLE_BYTES = 1 << 16;
+    private static final Object IGNORED = new Object();
+
+    private MappedCsv() {}
+
+    record Range(long start, long end) {}
+
+    // Dependencies of the range in the order of the file, and for every project the position of the first occurrence
+    // of its lowest dependency
+    record Parsed(List<DependencyRaw> dependencies, Map<String, Integer> firstLowest) {}
+
+    // Average length of the lines at the start of the file
+    static long lineBytes(FileChannel channel) throws IOException {
+        ByteBuffer sample = ByteBuffer.allocate((int) Math.min(SAMPLE_BYTES, channel.size()));
+        channel.read(sample, 0);
+        int lines = 0;
+        for (int i = 0; i < sample.position(); i++) {
+            if (sample.get(i) == '\n') {
+                lines++;
+            }
+        }
+        return Math.max(1, sample.position() / Math.max(1, lines));
+    }
+
+    // Ranges of about rangeBytes each, every range ends after a newline or at the end of the file
+    static List<Range> ranges(FileChannel channel, long rangeBytes) throws IOException {
+        long size = channel.size();
+        List<Range> ranges = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + Math.min(rangeBytes, MAX_RANGE_BYTES - probe.capacity()));
+            end = lineEnd(channel, end, probe);
+            ranges.add(new Range(start, end));
+            start = end;
+        }
+        return ranges;
+    }
+
+    private static long lineEnd(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        long size = channel.size();
+        long from = position - 1;
+        while (from < size) {
+            probe.clear();
+            int read = channel.read(probe, from);
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return from + i + 1;
+                }
+            }
+            from += Math.max(read, 0);
+            if (read <= 0) {
+                break;
+            }
+        }
+        return size;
+    }
+
+    // The dictionary is shared between the ranges parsed at the same time, it is only used under its own lock for
+    // values the range has not met yet
+    static Parsed parse(FileChannel channel, Range range, Pattern projectsToIgnore, CoordinateDictionary dictionary) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, range.start(), range.end() - range.start());
+        Slices projects = new Slices();
+        Slices dependencies = new Slices();
+        List<DependencyRaw> parsed = new ArrayList<>();
+        Map<String, Integer> firstLowest = new HashMap<>();
+        int limit = buffer.limit();
+        int position = 0;
+        while (position < limit) {
+            int lineStart = position;
+            int field = 0;
+            int projectEnd = -1;
+            int dependencyEnd = -1;
+            int projectHash = 0;
+            int dependencyHash = 0;
+            boolean blank = true;
+            int p = position;
+            for (; p < limit; p++) {
+                byte b = buffer.get(p);
+                if (b == '\n' || (b == '\r' && (p + 1 == limit || buffer.get(p + 1) == '\n'))) {
+                    break;
+                }
+                if (b < 0 || b > ' ') {
+                    blank = false;
+                }
+                if (b == ',') {
+                    field++;
+                    if (field == 1) {
+                        projectEnd = p;
+                    } else if (field == 6) {
+                        dependencyEnd = p;
+                    }
+                }
+                if (field == 0) {
+                    projectHash = 31 * projectHash + b;
+                } else if (field < 6 && p != projectEnd) {
+                    dependencyHash = 31 * dependencyHash + b;
+                }
+            }
+            position = p < limit && buffer.get(p) == '\r' ? p + 2 : p + 1;
+            if (blank) {
+                continue;
+            }
+            if (field == 5) {
+                dependencyEnd = p;
+            }
+            // Like String.split, which drops a trailing empty scope
+            if (field < 5 || (field == 5 && buffer.get(dependencyEnd - 1) == ',')) {
+                throw new IllegalArgumentException("Expected project,groupId,artifactId,version,packageType,scope but got: " + decode(buffer, lineStart, p));
+            }
+
+            Object project = projects.get(buffer, lineStart, projectEnd, projectHash);
+            if (project == null) {
+                String name;
+                synchronized (dictionary) {
+                    name = dictionary.project(decode(buffer, lineStart, projectEnd));
+                }
+                project = projectsToIgnore.matcher(name).matches() ? IGNORED : name;
+                projects.put(buffer, lineStart, projectEnd, projectHash, project);
+            }
+            if (project == IGNORED) {
+                continue;
+            }
+            Dependency dependency = (Dependency) dependencies.get(buffer, projectEnd + 1, dependencyEnd, dependencyHash);
+            if (dependency == null) {
+                String[] parts = decode(buffer, projectEnd + 1, dependencyEnd).split(",");
+                synchronized (dictionary) {
+                    dependency = dictionary.dependency(parts[0], parts[1], parts[2], parts[3], parts[4]);
+                }
+                dependencies.put(buffer, projectEnd + 1, dependencyEnd, dependencyHash, dependency);
+            }
+            String name = (String) project;
+            Integer lowest = firstLowest.get(name);
+            if (lowest == null || dependency.compareTo(parsed.get(lowest).dependency()) < 0) {
+                firstLowest.put(name, parsed.size());
+            }
+            parsed.add(new DependencyRaw(dependency, name));
+        }
+        return new Parsed(parsed, firstLowest);
+    }
+
+    private static String decode(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Open addressing table from byte slices of the mapped range to their decoded values
+    private static final class Slices {
+        private byte[][] keys = new byte[64][];
+        private int[] hashes = new int[64];
+        private Object[] values = new Object[64];
+        private int size;
+
+        Object get(ByteBuffer buffer, int from, int to, int hash) {
+            int mask = keys.length - 1;
+            for (int slot = mix(hash) & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash && matches(keys[slot], buffer, from, to)) {
+                    return values[slot];
+                }
+            }
+            return null;
+        }
+
+        void put(ByteBuffer buffer, int from, int to, int hash, Object value) {
+            if (2 * (size + 1) > keys.length) {
+                grow();
+            }
+            byte[] key = new byte[to - from];
+            buffer.get(from, key);
+            insert(key, hash, value);
+            size++;
+        }
+
+        private void insert(byte[] key, int hash, Object value) {
+            int mask = keys.length - 1;
+            int slot = mix(hash) & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            hashes[slot] = hash;
+            values[slot] = value;
+        }
+
+        private void grow() {
+            byte[][] oldKeys = keys;
+            int[] oldHashes = hashes;
+            Object[] oldValues = values;
+            keys = new byte[oldKeys.length * 2][];
+            hashes = new int[oldKeys.length * 2];
+            values = new Object[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    insert(oldKeys[i], oldHashes[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int mix(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+
+        private static boolean matches(byte[] key, ByteBuffer buffer, int from, int to) {
+            if (key.length != to - from) {
+                return false;
+            }
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != buffer.get(from + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
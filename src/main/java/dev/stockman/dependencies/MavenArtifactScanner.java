@@ -0,0 +1,125 @@
+package dev.stockman.dependencies;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Scans artifacts with the OWASP dependency-check Maven plugin run on generated poms that declare the artifacts as
+// their only dependencies, transitive ones excluded. Maven keeps a single version of each artifact per pom, so the
+// n-th version of every artifact goes into the n-th pom and the number of scans is the largest version count. A pom
+// failing its scan, e.g. on an artifact it cannot resolve without the repositories of the projects, fails only the
+// artifacts it declares.
+public class MavenArtifactScanner implements ArtifactScanner {
+    private static final String OWASP_REPORT = "dependency-check-report.json";
+
+    private final String mavenExecutable;
+
+    public MavenArtifactScanner(String mavenExecutable) {
+        this.mavenExecutable = mavenExecutable;
+    }
+
+    @Override
+    public Result scan(Collection<Dependency> artifacts) throws IOException, InterruptedException {
+        Map<String, List<Dependency>> versions = new LinkedHashMap<>();
+        artifacts.stream()
+                .sorted()
+                .forEach(artifact -> versions.computeIfAbsent(artifact.groupId() + ":" + artifact.artifactId() + ":" + artifact.packageType(), key -> new ArrayList<>()).add(artifact));
+        List<List<Dependency>> batches = new ArrayList<>();
+        for (List<Dependency> artifactVersions : versions.values()) {
+            for (int i = 0; i < artifactVersions.size(); i++) {
+                if (batches.size() == i) {
+                    batches.add(new ArrayList<>());
+                }
+                batches.get(i).add(artifactVersions.get(i));
+            }
+        }
+
+        Path workDirectory = Files.createTempDirectory("owasp-batch");
+        try {
+            List<String> reports = new ArrayList<>();
+            Set<Dependency> failed = new LinkedHashSet<>();
+            for (int i = 0; i < batches.size(); i++) {
+                Path batchDirectory = Files.createDirectory(workDirectory.resolve("batch-" + i));
+                Files.writeString(batchDirectory.resolve("pom.xml"), pom(i, batches.get(i)));
+                System.out.println("Scanning batch " + (i + 1) + " of " + batches.size() + " with " + batches.get(i).size() + " artifacts");
+                try {
+                    check(batchDirectory);
+                    reports.add(Files.readString(batchDirectory.resolve("target").resolve(OWASP_REPORT)).strip());
+                } catch (IOException e) {
+                    System.out.println(e.getMessage());
+                    failed.addAll(batches.get(i));
+                }
+            }
+            return new Result(reports, failed);
+        } finally {
+            try (Stream<Path> files = Files.walk(workDirectory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private void check(Path batchDirectory) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(mavenExecutable, "-B", "-f", batchDirectory.resolve("pom.xml").toString(), "org.owasp:dependency-check-maven:check", "-Dformat=JSON", "-q")
+                .redirectErrorStream(true)
+                .start();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            reader.lines().forEach(System.out::println);
+        }
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IOException("dependency-check failed for " + batchDirectory + " with exit code " + exitCode);
+        }
+    }
+
+    private static String pom(int batch, List<Dependency> artifacts) {
+        StringBuilder pom = new StringBuilder();
+        pom.append("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <project xmlns="http://maven.apache.org/POM/4.0.0">
+                    <modelVersion>4.0.0</modelVersion>
+                    <groupId>dev.stockman.dependencies</groupId>
+                    <artifactId>owasp-batch-%d</artifactId>
+                    <version>1.0</version>
+                    <dependencies>
+                """.formatted(batch));
+        for (Dependency artifact : artifacts) {
+            pom.append("""
+                            <dependency>
+                                <groupId>%s</groupId>
+                                <artifactId>%s</artifactId>
+                                <version>%s</version>
+                                <type>%s</type>
+                                <exclusions>
+                                    <exclusion>
+                                        <groupId>*</groupId>
+                                        <artifactId>*</artifactId>
+                                    </exclusion>
+                                </exclusions>
+                            </dependency>
+                    """.formatted(xml(artifact.groupId()), xml(artifact.artifactId()), xml(artifact.version()), xml(artifact.packageType())));
+        }
+        pom.append("""
+                    </dependencies>
+                </project>
+                """);
+        return pom.toString();
+    }
+
+    private static String xml(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
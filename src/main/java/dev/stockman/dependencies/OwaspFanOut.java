@@ -0,0 +1,85 @@
+package dev.stockman.dependencies;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Scans the distinct artifacts of all projects once, then hands every project a report holding only the findings
+// of the artifacts it uses, in place of a dependency-check run per project and module.
+public final class OwaspFanOut {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private OwaspFanOut() {}
+
+    // Projects with the findings of their artifacts, and the names of those using an artifact whose scan failed
+    public record Scanned(List<CollectedProject> projects, Set<String> failed) {}
+
+    public static Scanned scan(ArtifactScanner scanner, List<CollectedProject> projects) throws IOException, InterruptedException {
+        List<Set<Dependency>> artifacts = new ArrayList<>();
+        Set<Dependency> distinct = new LinkedHashSet<>();
+        for (CollectedProject project : projects) {
+            Set<Dependency> projectArtifacts = new LinkedHashSet<>();
+            for (String line : project.dependencies()) {
+                String[] parts = line.split(",");
+                projectArtifacts.add(new Dependency(parts[1], parts[2], parts[3], parts[4], null));
+            }
+            artifacts.add(projectArtifacts);
+            distinct.addAll(projectArtifacts);
+        }
+        System.out.println("Scanning " + distinct.size() + " distinct artifacts of " + projects.size() + " projects");
+        ArtifactScanner.Result result = scanner.scan(distinct);
+        Map<String, JsonNode> findings = findings(result.reports());
+
+        List<CollectedProject> scanned = new ArrayList<>();
+        Set<String> failed = new HashSet<>();
+        for (int i = 0; i < projects.size(); i++) {
+            CollectedProject project = projects.get(i);
+            scanned.add(new CollectedProject(project.project(), project.dependencies(), project.edges(), report(artifacts.get(i), findings)));
+            if (!Collections.disjoint(artifacts.get(i), result.failed())) {
+                failed.add(project.project());
+            }
+        }
+        return new Scanned(scanned, failed);
+    }
+
+    // Dependency blocks with at least one vulnerability, by the file name dependency-check reports them under
+    private static Map<String, JsonNode> findings(Collection<String> reports) throws IOException {
+        Map<String, JsonNode> findings = new HashMap<>();
+        for (String report : reports) {
+            JsonNode dependencies = OBJECT_MAPPER.readTree(report).path("dependencies");
+            for (JsonNode dependency : dependencies) {
+                if (dependency.path("fileName").isValueNode() && !dependency.path("vulnerabilities").isEmpty()) {
+                    findings.putIfAbsent(dependency.get("fileName").asText(), dependency);
+                }
+            }
+        }
+        return findings;
+    }
+
+    private static List<String> report(Collection<Dependency> artifacts, Map<String, JsonNode> findings) {
+        ArrayNode dependencies = OBJECT_MAPPER.createArrayNode();
+        for (Dependency artifact : artifacts) {
+            JsonNode finding = findings.get(artifact.fileName());
+            if (finding != null) {
+                dependencies.add(finding);
+            }
+        }
+        if (dependencies.isEmpty()) {
+            return List.of();
+        }
+        ObjectNode report = OBJECT_MAPPER.createObjectNode();
+        report.set("dependencies", dependencies);
+        return List.of(report.toString());
+    }
+}
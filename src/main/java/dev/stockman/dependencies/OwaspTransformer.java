@@ -1,77 +1,179 @@
 package dev.stockman.dependencies;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.function.Function;
-import java.util.function.UnaryOperator;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public final class OwaspTransformer {
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
     private OwaspTransformer() {}
 
-    private static JsonNode toJson(String json) {
-        try {
-            return OBJECT_MAPPER.readTree(json);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    // Collapses every run of tabs, newlines, carriage returns and spaces into a single space and trims the result,
+    // in one pass over the characters. The input is returned as is when nothing changes.
+    static String removeWhiteSpace(String str) {
+        if (str == null) {
+            return null; // Return null if the input is null
+        }
+        int start = 0;
+        int end = str.length();
+        while (start < end && str.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && str.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        StringBuilder builder = null;
+        boolean space = false;
+        for (int i = start; i < end; i++) {
+            char c = str.charAt(i);
+            boolean whiteSpace = c == ' ' || c == '\t' || c == '\n' || c == '\r';
+            if (builder == null && whiteSpace && (c != ' ' || space)) {
+                // First character that does not survive as is, copy what was kept so far
+                builder = new StringBuilder(end - start).append(str, start, space ? i - 1 : i);
+            }
+            if (builder != null) {
+                if (!whiteSpace) {
+                    if (space) {
+                        builder.append(' ');
+                    }
+                    builder.append(c);
+                }
+            }
+            space = whiteSpace;
+        }
+        if (builder != null) {
+            return builder.toString();
         }
+        return start == 0 && end == str.length() ? str : str.substring(start, end);
     }
 
-    private static Vulnerability fromJson(JsonNode json) {
-        return OBJECT_MAPPER.convertValue(json, Vulnerability.class);
+    // Walks dependencies[].vulnerabilities[] of every report with the token stream, never building a tree.
+    // Reports may be concatenated one after another, as they are in owasp-raw.txt. Modules of a project often carry
+    // identical aggregate reports, so a report whose digest was already seen is not parsed again. Dependency blocks
+    // already read from another report, by fileName and sha1, are skipped before any of their objects are built.
+    public static void stream(InputStream input, Consumer<Vulnerability> consumer) throws IOException {
+        Set<ByteBuffer> reports = new HashSet<>();
+        Set<String> dependencies = new HashSet<>();
+        CveDictionary dictionary = new CveDictionary();
+        ReportFragments fragments = new ReportFragments(input);
+        while (fragments.next()) {
+            if (!reports.add(ByteBuffer.wrap(fragments.digest()))) {
+                continue;
+            }
+            try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(fragments.buffer(), 0, fragments.length())) {
+                if (parser.nextToken() == JsonToken.START_OBJECT) {
+                    readReport(parser, consumer, dependencies, dictionary);
+                }
+            }
+        }
     }
 
-    private static String removeWhiteSpace(String str) {
-        if (str == null) {
-            return null; // Return null if the input is null
+    private static void readReport(JsonParser parser, Consumer<Vulnerability> consumer, Set<String> dependencies, CveDictionary dictionary) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("dependencies".equals(field) && value == JsonToken.START_ARRAY) {
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (token == JsonToken.START_OBJECT) {
+                        readDependency(parser, consumer, dependencies, dictionary);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
         }
-        return str.replaceAll("[\\t\\n\\r]+", " ") // Replace tabs, newlines, and carriage returns with a single space
-                .replaceAll(" +", " ")          // Replace multiple spaces with a single space
-                .trim();                        // Remove leading and trailing spaces (optional)
     }
 
-    public static final Function<String, JsonNode> TO_JSON = OwaspTransformer::toJson;
-
-    public static final UnaryOperator<JsonNode> EXTRACT_CVE = json -> {
-        ArrayNode output = OBJECT_MAPPER.createArrayNode();
-        ArrayNode dependencies = (ArrayNode) json.get("dependencies");
-        dependencies.forEach(dependency -> {
-            String fileName = dependency.get("fileName").asText();
-            if (dependency.path("vulnerabilities").isArray()) {
-                ArrayNode vulnerabilities = (ArrayNode) dependency.get("vulnerabilities");
-                if (!vulnerabilities.isEmpty()) {
-                    vulnerabilities.forEach(vulnerability -> {
-                        ObjectNode outputVulnerability = OBJECT_MAPPER.createObjectNode();
-                        outputVulnerability.put("fileName", fileName);
-                        if (vulnerability.path("name").isValueNode()) {
-                            outputVulnerability.put("name", vulnerability.get("name").asText());
-                        }
-                        if (vulnerability.path("severity").isValueNode()) {
-                            outputVulnerability.put("severity", vulnerability.get("severity").asText());
-                        }
-                        if (vulnerability.path("description").isValueNode()) {
-                            outputVulnerability.put("description", removeWhiteSpace(vulnerability.get("description").asText()));
-                        }
-                        if (vulnerability.path("cvssv3").path("baseScore").isValueNode()) {
-                            outputVulnerability.put("cvssv3Score", vulnerability.get("cvssv3").get("baseScore").asText());
-                        }
-                        output.add(outputVulnerability);
-                    });
+    private static void readDependency(JsonParser parser, Consumer<Vulnerability> consumer, Set<String> dependencies, CveDictionary dictionary) throws IOException {
+        String fileName = null;
+        String sha1 = null;
+        List<Vulnerability> vulnerabilities = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("fileName".equals(field) && value.isScalarValue()) {
+                fileName = parser.getValueAsString();
+            } else if ("sha1".equals(field) && value.isScalarValue()) {
+                sha1 = parser.getValueAsString();
+            } else if ("vulnerabilities".equals(field) && value == JsonToken.START_ARRAY && !dependencies.contains(dependencyKey(fileName, sha1))) {
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (token == JsonToken.START_OBJECT) {
+                        vulnerabilities.add(readVulnerability(parser, dictionary));
+                    } else {
+                        parser.skipChildren();
+                    }
                 }
+            } else {
+                parser.skipChildren();
             }
-        });
-        return output;
-    };
+        }
+        // Blocks without a sha1, such as virtual dependencies, cannot be told apart and are always read
+        String key = dependencyKey(fileName, sha1);
+        if (key != null && !dependencies.add(key)) {
+            return;
+        }
+        // fileName is not guaranteed to precede the vulnerabilities, so it is applied once the object is complete
+        for (Vulnerability vulnerability : vulnerabilities) {
+            consumer.accept(new Vulnerability(fileName, vulnerability.name(), vulnerability.severity(), vulnerability.cvssv3Score(), vulnerability.description()));
+        }
+    }
 
-    public static final Function<JsonNode, List<Vulnerability>> TRANSFORM = json -> {
-        List<Vulnerability> vulnerabilities = new ArrayList<>();
-        json.forEach(vulnerability -> vulnerabilities.add(fromJson(vulnerability)));
-        return vulnerabilities;
-    };
+    private static String dependencyKey(String fileName, String sha1) {
+        return fileName == null || sha1 == null ? null : fileName + '\n' + sha1;
+    }
+
+    private static Vulnerability readVulnerability(JsonParser parser, CveDictionary dictionary) throws IOException {
+        String name = null;
+        String severity = null;
+        BigDecimal cvssv3Score = null;
+        String description = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("name".equals(field) && value.isScalarValue()) {
+                name = parser.getValueAsString();
+            } else if ("severity".equals(field) && value.isScalarValue()) {
+                severity = parser.getValueAsString();
+            } else if ("description".equals(field) && value.isScalarValue() && !dictionary.hasDescription(name)) {
+                // Left undecoded when the CVE was already seen, the parser skips over the text
+                description = parser.getValueAsString();
+            } else if ("cvssv3".equals(field) && value == JsonToken.START_OBJECT) {
+                cvssv3Score = readBaseScore(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return dictionary.vulnerability(null, name, severity, cvssv3Score, description);
+    }
+
+    private static BigDecimal readBaseScore(JsonParser parser) throws IOException {
+        BigDecimal baseScore = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("baseScore".equals(field) && value == JsonToken.VALUE_NUMBER_FLOAT) {
+                // Same textual form the tree model produced, e.g. 5.30 -> 5.3
+                baseScore = new BigDecimal(Double.toString(parser.getDoubleValue()));
+            } else if ("baseScore".equals(field) && value.isScalarValue() && value != JsonToken.VALUE_NULL) {
+                baseScore = new BigDecimal(parser.getValueAsString());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return baseScore;
+    }
 }
@@ -0,0 +1,7 @@
+package dev.stockman.dependencies;
+
+import java.math.BigDecimal;
+
+// Vulnerable dependencies of one project, counted by their highest severity
+public record ProjectExposure(String project, int critical, int high, int medium, int low, int vulnerableDependencies, BigDecimal maxCvssv3Score) {
+}
@@ -0,0 +1,161 @@
+package dev.stockman.dependencies;
+
+import java.util.Arrays;
+
+// Project membership of a dependency packed 64 projects per word, so merging rows ORs whole words at a time.
+public final class ProjectMatrix {
+    private static final int ADDRESS_BITS = 6;
+
+    private final int size;
+    private final long[] words;
+
+    public ProjectMatrix(int size) {
+        this(size, new long[wordCount(size)]);
+    }
+
+    private ProjectMatrix(int size, long[] words) {
+        this.size = size;
+        this.words = words;
+    }
+
+    // Matrix of size projects from its packed words, as stored by Shard
+    static ProjectMatrix of(int size, long[] words) {
+        if (words.length != wordCount(size)) {
+            throw new IllegalArgumentException("Expected " + wordCount(size) + " words for " + size + " projects but got " + words.length);
+        }
+        int last = size & (Long.SIZE - 1);
+        if (last != 0 && (words[words.length - 1] & -(1L << last)) != 0) {
+            throw new IllegalArgumentException("Projects beyond " + size + " are set");
+        }
+        return new ProjectMatrix(size, words.clone());
+    }
+
+    static int wordCount(int size) {
+        return (size + Long.SIZE - 1) >>> ADDRESS_BITS;
+    }
+
+    // Projects 64 * index to 64 * index + 63 packed into one word
+    long word(int index) {
+        return words[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean get(int project) {
+        checkIndex(project);
+        return (words[project >>> ADDRESS_BITS] & (1L << project)) != 0;
+    }
+
+    public void set(int project) {
+        checkIndex(project);
+        words[project >>> ADDRESS_BITS] |= 1L << project;
+    }
+
+    public void clear(int project) {
+        checkIndex(project);
+        words[project >>> ADDRESS_BITS] &= ~(1L << project);
+    }
+
+    // Projects in this matrix or the other one
+    public ProjectMatrix or(ProjectMatrix other) {
+        checkSize(other);
+        long[] result = new long[words.length];
+        for (int i = 0; i < words.length; i++) {
+            result[i] = words[i] | other.words[i];
+        }
+        return new ProjectMatrix(size, result);
+    }
+
+    // Copy of this matrix holding size projects, projects beyond the new size are dropped
+    public ProjectMatrix resize(int size) {
+        ProjectMatrix resized = new ProjectMatrix(size, Arrays.copyOf(words, wordCount(size)));
+        int last = size & (Long.SIZE - 1);
+        if (last != 0) {
+            resized.words[resized.words.length - 1] &= (1L << last) - 1;
+        }
+        return resized;
+    }
+
+    // Projects in both matrices
+    public ProjectMatrix and(ProjectMatrix other) {
+        checkSize(other);
+        long[] result = new long[words.length];
+        for (int i = 0; i < words.length; i++) {
+            result[i] = words[i] & other.words[i];
+        }
+        return new ProjectMatrix(size, result);
+    }
+
+    // Projects in this matrix but not in the other one, e.g. projects that use A but not B
+    public ProjectMatrix andNot(ProjectMatrix other) {
+        checkSize(other);
+        long[] result = new long[words.length];
+        for (int i = 0; i < words.length; i++) {
+            result[i] = words[i] & ~other.words[i];
+        }
+        return new ProjectMatrix(size, result);
+    }
+
+    // Number of projects in this matrix
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+
+    // Index of the first project at or after fromIndex, -1 if there is none
+    public int nextSetBit(int fromIndex) {
+        if (fromIndex >= size) return -1;
+        int u = fromIndex >>> ADDRESS_BITS;
+        long word = words[u] & (-1L << fromIndex);
+        while (true) {
+            if (word != 0) return (u << ADDRESS_BITS) + Long.numberOfTrailingZeros(word);
+            if (++u == words.length) return -1;
+            word = words[u];
+        }
+    }
+
+    private void checkIndex(int project) {
+        if (project < 0 || project >= size) {
+            throw new IndexOutOfBoundsException("Project " + project + " is outside a matrix of " + size);
+        }
+    }
+
+    private void checkSize(ProjectMatrix other) {
+        if (size != other.size) {
+            throw new IllegalArgumentException("Matrix lengths must be equal");
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ProjectMatrix other)) return false;
+        return size == other.size && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * size + Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(size);
+        for (int i = 0; i < size; i++) {
+            builder.append(get(i) ? '1' : '0');
+        }
+        return builder.toString();
+    }
+}
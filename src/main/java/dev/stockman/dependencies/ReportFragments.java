@@ -0,0 +1,103 @@
+package dev.stockman.dependencies;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+// Splits concatenated JSON documents, such as owasp-raw.txt, into one fragment per document and digests each
+// fragment while it is read. Only nesting and strings are tracked to find where a document ends, nothing is parsed.
+// A single fragment is held in memory at a time.
+final class ReportFragments {
+    private final InputStream input;
+    private final MessageDigest digest;
+    private final byte[] chunk = new byte[64 * 1024];
+    private int position;
+    private int limit;
+    private byte[] fragment = new byte[64 * 1024];
+    private int length;
+
+    ReportFragments(InputStream input) {
+        this.input = input;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Reads the next document, false once the input is exhausted
+    boolean next() throws IOException {
+        length = 0;
+        digest.reset();
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        while (true) {
+            if (position == limit) {
+                limit = input.read(chunk);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return length > 0;
+                }
+            }
+            int start = position;
+            while (position < limit) {
+                byte b = chunk[position++];
+                if (inString) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (b == '\\') {
+                        escaped = true;
+                    } else if (b == '"') {
+                        inString = false;
+                    }
+                } else if (b == '{' || b == '[') {
+                    depth++;
+                } else if (b == '}' || b == ']') {
+                    depth--;
+                    if (depth <= 0) {
+                        append(start, position);
+                        return true;
+                    }
+                } else if (b == '"') {
+                    inString = true;
+                } else if (depth == 0 && (b == ' ' || b == '\n' || b == '\r' || b == '\t')) {
+                    // Whitespace between documents is not part of any fragment
+                    append(start, position - 1);
+                    if (length > 0) {
+                        return true;
+                    }
+                    start = position;
+                }
+            }
+            append(start, position);
+        }
+    }
+
+    byte[] buffer() {
+        return fragment;
+    }
+
+    int length() {
+        return length;
+    }
+
+    // SHA-256 of the current fragment
+    byte[] digest() {
+        return digest.digest();
+    }
+
+    private void append(int from, int to) {
+        int count = to - from;
+        if (count <= 0) return;
+        if (length + count > fragment.length) {
+            fragment = Arrays.copyOf(fragment, Math.max(length + count, fragment.length * 2));
+        }
+        System.arraycopy(chunk, from, fragment, length, count);
+        digest.update(chunk, from, count);
+        length += count;
+    }
+}
@@ -0,0 +1,154 @@
+package dev.stockman.dependencies;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// Builds the report from the collected dependency CSV and the raw OWASP reports. Shared by the Spring Application and
+// the plain Cli entrypoint, so it must not depend on Spring.
+public final class ReportGenerator {
+    // Dependencies per batch handed from the merge to the rollup, and batches in flight
+    private static final int HANDOFF_BATCH = 4096;
+    private static final int HANDOFF_BATCHES = 4;
+
+    private final Pattern projectsToIgnore;
+    private final int ingestChunkLines;
+    private final String format;
+    private final int excelRowWindow;
+    private final boolean prometheus;
+
+    // ingestChunkLines bounds the CSV lines sorted in memory at once, larger CSVs are sorted in runs spilled to disk.
+    // prometheus also writes the metrics of every run in the Prometheus text format next to the report
+    public ReportGenerator(Pattern projectsToIgnore, int ingestChunkLines, String format, int excelRowWindow, boolean prometheus) {
+        this.projectsToIgnore = projectsToIgnore;
+        this.ingestChunkLines = ingestChunkLines;
+        this.format = format;
+        this.excelRowWindow = excelRowWindow;
+        this.prometheus = prometheus;
+    }
+
+    // Also writes the run profile, the time and allocation of every stage, next to the report.
+    // The stages overlap: the OWASP reports are parsed while the CSV is sorted and rolled up, and the report writer
+    // starts on the vulnerabilities while the rollups are still being built.
+    public void generate(Path sourceFile, Path owaspFile, Path outputFile) throws IOException {
+        RunProfile profile = RunProfile.create(prometheus);
+        profile.countFile("read", "owasp", owaspFile);
+        profile.countFile("read", "dependencies", sourceFile);
+        try (ExecutorService stages = Stages.executor()) {
+            Future<Set<Vulnerability>> distinctVulnerabilities = stages.submit(() -> {
+                Set<Vulnerability> vulnerabilities = profile.time("owasp.parse", () -> vulnerabilities(owaspFile));
+                profile.count("report.vulnerabilities", vulnerabilities.size());
+                return vulnerabilities;
+            });
+            Future<Rollups> dependencies = stages.submit(() -> rollups(sourceFile, profile));
+            Future<Rollups> rollups = stages.submit(() -> {
+                Rollups unannotated = Stages.join(dependencies);
+                Set<Vulnerability> vulnerabilities = Stages.join(distinctVulnerabilities);
+                return profile.time("risk.join", () -> RiskJoin.annotate(unannotated, vulnerabilities));
+            });
+            write(rollups, Stages.join(distinctVulnerabilities), outputFile, profile, stages, vulnerablePaths(sourceFile, rollups, profile, stages));
+        }
+        profile.write(outputFile);
+    }
+
+    // Paths to the CRITICAL and HIGH findings when the dependency trees were collected next to the CSV, null otherwise.
+    // The graph is read while the CSV is sorted, and searched once the rollups carry their risks.
+    private static Future<List<VulnerablePath>> vulnerablePaths(Path sourceFile, Future<Rollups> rollups, RunProfile profile, ExecutorService stages) throws IOException {
+        Path treeFile = DependencyGraph.path(sourceFile);
+        if (!Files.isRegularFile(treeFile)) {
+            return null;
+        }
+        profile.countFile("read", "tree", treeFile);
+        Future<DependencyGraph> graph = stages.submit(() -> {
+            DependencyGraph read = profile.time("graph.read", () -> DependencyGraph.read(treeFile));
+            profile.count("report.graph.edges", read.edges());
+            return read;
+        });
+        return stages.submit(() -> {
+            DependencyGraph built = Stages.join(graph);
+            Rollups annotated = Stages.join(rollups);
+            List<VulnerablePath> paths = profile.time("graph.paths", () -> built.vulnerablePaths(annotated));
+            profile.count("report.vulnerable.paths", paths.size());
+            return paths;
+        });
+    }
+
+    // Writes the report of rollups already annotated with the risk of the vulnerabilities
+    public void write(Rollups rollups, Set<Vulnerability> distinctVulnerabilities, Path outputFile) throws IOException {
+        try (ExecutorService stages = Stages.executor()) {
+            write(CompletableFuture.completedFuture(rollups), distinctVulnerabilities, outputFile, RunProfile.NONE, stages, null);
+        }
+    }
+
+    // The snapshot is written on its own stage, at the same time as the report
+    private void write(Future<Rollups> rollups, Set<Vulnerability> distinctVulnerabilities, Path outputFile, RunProfile profile, ExecutorService stages,
+                       Future<List<VulnerablePath>> vulnerablePaths) throws IOException {
+        Map<String, List<Vulnerability>> vulnerabilities = new HashMap<>(distinctVulnerabilities.stream()
+                .collect(Collectors.groupingBy(Vulnerability::severity,
+                        Collectors.mapping(v -> v, Collectors.collectingAndThen(
+                                Collectors.toList(), list -> {
+                                    list.sort(null); // Sort the list using natural order
+                                    return list;
+                                }
+                        ))
+                ))
+        );
+        // Kept next to the report so the next run can be compared with this one by the diff command
+        Path snapshot = Snapshot.path(outputFile);
+        Future<?> snapshotWritten = stages.submit(() -> {
+            profile.time("snapshot.write", () -> Snapshot.write(snapshot, Stages.join(rollups), distinctVulnerabilities));
+            profile.countFile("written", "snapshot", snapshot);
+            return null;
+        });
+        ReportWriter writer = ReportWriter.of(format, outputFile, excelRowWindow, profile, vulnerablePaths);
+        profile.timeFanOut("report.write", () -> writer.write(rollups, vulnerabilities, outputFile));
+        profile.countFile("written", "report", outputFile);
+        Stages.join(snapshotWritten);
+        if (vulnerablePaths != null) {
+            // Only the xlsx has the sheet, a failure to find the paths still fails the other formats
+            Stages.join(vulnerablePaths);
+        }
+    }
+
+    // Distinct vulnerabilities of the raw OWASP reports
+    public static Set<Vulnerability> vulnerabilities(Path owaspFile) throws IOException {
+        Set<Vulnerability> vulnerabilities = new HashSet<>();
+        try (InputStream input = Files.newInputStream(owaspFile)) {
+            OwaspTransformer.stream(input, vulnerabilities::add);
+        }
+        return vulnerabilities;
+    }
+
+    // Rollups of the dependencies in the CSV, annotated with the risk of their vulnerabilities
+    public Rollups rollups(Path sourceFile, Set<Vulnerability> vulnerabilities) throws IOException {
+        return RiskJoin.annotate(rollups(sourceFile, RunProfile.NONE), vulnerabilities);
+    }
+
+    // The k-way merge of the sorted CSV feeds the rollup through a bounded handoff, so both run at the same time
+    private Rollups rollups(Path sourceFile, RunProfile profile) throws IOException {
+        CoordinateDictionary dictionary = new CoordinateDictionary();
+        Rollups rollups;
+        try (DependencyRuns dependencies = profile.timeFanOut("csv.read", () -> DependencyRuns.sort(sourceFile, projectsToIgnore, dictionary, ingestChunkLines));
+             BoundedHandoff<DependencyRaw> merged = BoundedHandoff.start(dependencies, HANDOFF_BATCH, HANDOFF_BATCHES)) {
+            profile.count("report.spilled.runs", dependencies.spilledRuns());
+            rollups = profile.time("rollup", () -> DependencyRollup.rollup(merged, dependencies.projects()));
+            profile.count("report.dependencies", dependencies.streamed());
+        }
+        profile.count("report.projects", rollups.projects().size());
+        profile.count("report.rows", "level", "byScope", rollups.byScope().size());
+        profile.count("report.rows", "level", "byVersion", rollups.byVersion().size());
+        profile.count("report.rows", "level", "byArtifact", rollups.byArtifact().size());
+        return rollups;
+    }
+}
@@ -0,0 +1,28 @@
+package dev.stockman.dependencies;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Section order and row order shared by the report writers, the same as the sheets of the xlsx report
+final class ReportSections {
+    private ReportSections() {}
+
+    private static final Comparator<Vulnerability> BY_FILE_NAME = Comparator.comparing(Vulnerability::fileName).thenComparing(Comparator.naturalOrder());
+
+    // Vulnerabilities of every known severity from CRITICAL to NONE, each sorted by file name
+    static Map<String, List<Vulnerability>> vulnerabilities(Map<String, List<Vulnerability>> bySeverity) {
+        Map<String, List<Vulnerability>> sections = new LinkedHashMap<>();
+        for (String severity : Vulnerability.SEVERITY_ORDER) {
+            List<Vulnerability> vulnerabilities = bySeverity.get(severity);
+            if (vulnerabilities != null && !vulnerabilities.isEmpty()) {
+                List<Vulnerability> sorted = new ArrayList<>(vulnerabilities);
+                sorted.sort(BY_FILE_NAME);
+                sections.put(severity, sorted);
+            }
+        }
+        return sections;
+    }
+}
@@ -0,0 +1,37 @@
+package dev.stockman.dependencies;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+// Writes the rollups, the exposure of every project and the vulnerabilities grouped by severity to a report
+public interface ReportWriter {
+
+    void write(Rollups rollups, Map<String, List<Vulnerability>> vulnerabilities, Path output) throws IOException;
+
+    // Writes the report once the rollups are built. Writers able to start on the vulnerabilities alone override this
+    // to do so while the rollups are still being built.
+    default void write(Future<Rollups> rollups, Map<String, List<Vulnerability>> vulnerabilities, Path output) throws IOException {
+        write(Stages.join(rollups), vulnerabilities, output);
+    }
+
+    // Writer of the format, auto picks it from the extension of the output. Only the xlsx writer loads Apache POI.
+    // vulnerablePaths, null without dependency trees, adds the Vulnerable Paths sheet to the xlsx.
+    static ReportWriter of(String format, Path output, int excelRowWindow, RunProfile profile, Future<List<VulnerablePath>> vulnerablePaths) {
+        String resolved = format;
+        if ("auto".equals(format)) {
+            String fileName = output.getFileName().toString();
+            resolved = fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        }
+        return switch (resolved) {
+            case "xlsx" -> new ExcelExporter(excelRowWindow, profile, vulnerablePaths);
+            case "csv" -> new CsvReportWriter();
+            case "jsonl" -> new JsonLinesReportWriter();
+            case "html" -> new HtmlReportWriter();
+            default -> throw new IllegalArgumentException("Unknown report format " + resolved + ", expected xlsx, csv, jsonl or html");
+        };
+    }
+}
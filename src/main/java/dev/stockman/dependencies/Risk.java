@@ -0,0 +1,25 @@
+package dev.stockman.dependencies;
+
+import java.math.BigDecimal;
+
+// Known vulnerabilities of a dependency: the highest severity and CVSSv3 score among them and how many there are
+public record Risk(String maxSeverity, BigDecimal maxCvssv3Score, int cveCount) {
+    public static final Risk NONE = new Risk(null, null, 0);
+
+    public Risk with(Vulnerability vulnerability) {
+        String severity = Vulnerability.severityRank(vulnerability.severity()) < Vulnerability.severityRank(maxSeverity) ? vulnerability.severity() : maxSeverity;
+        return new Risk(severity, max(maxCvssv3Score, vulnerability.cvssv3Score()), cveCount + 1);
+    }
+
+    // Risk of two different artifact files together
+    public Risk combine(Risk other) {
+        String severity = Vulnerability.severityRank(other.maxSeverity) < Vulnerability.severityRank(maxSeverity) ? other.maxSeverity : maxSeverity;
+        return new Risk(severity, max(maxCvssv3Score, other.maxCvssv3Score), cveCount + other.cveCount);
+    }
+
+    private static BigDecimal max(BigDecimal a, BigDecimal b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+}
@@ -0,0 +1,76 @@
+package dev.stockman.dependencies;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Links OWASP findings to matrix rows with a hash join on the artifact file name, O(rows + vulnerabilities).
+// The findings are the build side since there are fewer of them, every By Scope and By Version row probes it once.
+// By Artifact rows combine the risks of their versions, which come in the same order in the By Version rollup.
+public final class RiskJoin {
+    private RiskJoin() {}
+
+    public static Rollups annotate(Rollups rollups, Collection<Vulnerability> vulnerabilities) {
+        Map<String, Risk> riskByFileName = new HashMap<>();
+        Set<String> counted = new HashSet<>();
+        for (Vulnerability vulnerability : vulnerabilities) {
+            // The same CVE may be reported with different descriptions or scores, it counts once per file
+            if (vulnerability.fileName() != null && counted.add(vulnerability.fileName() + '\n' + vulnerability.name())) {
+                riskByFileName.merge(vulnerability.fileName(), Risk.NONE.with(vulnerability), Risk::combine);
+            }
+        }
+
+        List<DependencyRow> byScope = annotate(rollups.byScope(), riskByFileName);
+        List<DependencyRow> byVersion = annotate(rollups.byVersion(), riskByFileName);
+        List<DependencyRow> byArtifact = new ArrayList<>(rollups.byArtifact().size());
+        int version = 0;
+        for (DependencyRow artifact : rollups.byArtifact()) {
+            Risk risk = Risk.NONE;
+            while (version < byVersion.size() && byVersion.get(version).dependency().compareArtifact(artifact.dependency()) == 0) {
+                risk = risk.combine(byVersion.get(version++).risk());
+            }
+            byArtifact.add(new DependencyRow(artifact.dependency(), artifact.matrix(), risk));
+        }
+        return new Rollups(rollups.projects(), byScope, byVersion, byArtifact);
+    }
+
+    private static List<DependencyRow> annotate(List<DependencyRow> rows, Map<String, Risk> riskByFileName) {
+        List<DependencyRow> annotated = new ArrayList<>(rows.size());
+        for (DependencyRow row : rows) {
+            annotated.add(new DependencyRow(row.dependency(), row.matrix(), riskByFileName.getOrDefault(row.dependency().fileName(), Risk.NONE)));
+        }
+        return annotated;
+    }
+
+    // Per project, its vulnerable By Version rows counted by their highest severity
+    public static List<ProjectExposure> exposure(Rollups rollups) {
+        int projects = rollups.projects().size();
+        int[][] counts = new int[projects][4];
+        int[] vulnerable = new int[projects];
+        BigDecimal[] maxScores = new BigDecimal[projects];
+        for (DependencyRow row : rollups.byVersion()) {
+            Risk risk = row.risk();
+            if (risk.cveCount() == 0) continue;
+            int rank = Vulnerability.severityRank(risk.maxSeverity());
+            for (int p = row.matrix().nextSetBit(0); p >= 0; p = row.matrix().nextSetBit(p + 1)) {
+                if (rank < counts[p].length) {
+                    counts[p][rank]++;
+                }
+                vulnerable[p]++;
+                if (risk.maxCvssv3Score() != null && (maxScores[p] == null || risk.maxCvssv3Score().compareTo(maxScores[p]) > 0)) {
+                    maxScores[p] = risk.maxCvssv3Score();
+                }
+            }
+        }
+        List<ProjectExposure> exposure = new ArrayList<>(projects);
+        for (int p = 0; p < projects; p++) {
+            exposure.add(new ProjectExposure(rollups.projects().get(p), counts[p][0], counts[p][1], counts[p][2], counts[p][3], vulnerable[p], maxScores[p]));
+        }
+        return exposure;
+    }
+}
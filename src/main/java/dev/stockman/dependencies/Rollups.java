@@ -0,0 +1,7 @@
+package dev.stockman.dependencies;
+
+import java.util.List;
+
+// The project matrix at each granularity, every level sorted in Dependency order
+public record Rollups(List<String> projects, List<DependencyRow> byScope, List<DependencyRow> byVersion, List<DependencyRow> byArtifact) {
+}
@@ -0,0 +1,169 @@
+package dev.stockman.dependencies;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+
+// Micrometer metrics of one report run: a report.stage timer per stage, with the bytes allocated by the stage where
+// the JVM can tell, and counters of rows, projects, vulnerabilities and bytes read and written. Written as a JSON run
+// profile next to the report, and in the Prometheus text format when enabled.
+// The JVM counts allocation per thread, so a stage fanning its work out to other threads, as csv.read does on the
+// common pool and report.write on the sheet executor, is only timed: its allocation would miss the workers. Stages run
+// by the workers themselves, such as the sheets of a workbook, record their own.
+public final class RunProfile {
+    // Records nothing, for writers used outside of a report run
+    public static final RunProfile NONE = new RunProfile(new CompositeMeterRegistry(), false);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    private final MeterRegistry registry;
+    private final boolean prometheus;
+    private final Instant start = Instant.now();
+
+    private RunProfile(MeterRegistry registry, boolean prometheus) {
+        this.registry = registry;
+        this.prometheus = prometheus;
+    }
+
+    public static RunProfile create(boolean prometheus) {
+        return new RunProfile(prometheus ? Prometheus.registry() : new SimpleMeterRegistry(), prometheus);
+    }
+
+    @FunctionalInterface
+    public interface Stage<T> {
+        T run() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface VoidStage {
+        void run() throws IOException;
+    }
+
+    public <T> T time(String stage, Stage<T> body) throws IOException {
+        return time(stage, true, body);
+    }
+
+    public void time(String stage, VoidStage body) throws IOException {
+        time(stage, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    // Times a stage whose work runs on other threads, without its allocation
+    public <T> T timeFanOut(String stage, Stage<T> body) throws IOException {
+        return time(stage, false, body);
+    }
+
+    public void timeFanOut(String stage, VoidStage body) throws IOException {
+        timeFanOut(stage, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    private <T> T time(String stage, boolean allocation, Stage<T> body) throws IOException {
+        long allocated = allocation ? allocatedBytes() : -1;
+        Timer.Sample sample = Timer.start(registry);
+        try {
+            return body.run();
+        } finally {
+            sample.stop(registry.timer("report.stage", "stage", stage));
+            if (allocated >= 0) {
+                registry.summary("report.stage.allocated", "stage", stage).record(allocatedBytes() - allocated);
+            }
+        }
+    }
+
+    public void count(String name, String tagKey, String tagValue, double amount) {
+        registry.counter(name, tagKey, tagValue).increment(amount);
+    }
+
+    public void count(String name, double amount) {
+        registry.counter(name).increment(amount);
+    }
+
+    // Counts the size of a file read or written by the run
+    public void countFile(String direction, String file, Path path) throws IOException {
+        if (this == NONE) {
+            return;
+        }
+        registry.counter("report.bytes", "direction", direction, "file", file).increment(Files.size(path));
+    }
+
+    // report.xlsx -> report.profile.json and report.prom next to it, the latter only for a Prometheus run
+    public void write(Path report) throws IOException {
+        String fileName = report.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String base = dot < 0 ? fileName : fileName.substring(0, dot);
+        try (OutputStream output = Files.newOutputStream(report.resolveSibling(base + ".profile.json"));
+             JsonGenerator generator = JSON_FACTORY.createGenerator(output).useDefaultPrettyPrinter()) {
+            generator.writeStartObject();
+            generator.writeStringField("report", report.toString());
+            generator.writeStringField("start", start.toString());
+            generator.writeArrayFieldStart("meters");
+            List<Meter> meters = registry.getMeters().stream()
+                    .sorted(Comparator.comparing((Meter meter) -> meter.getId().getName()).thenComparing(meter -> meter.getId().getTags().toString()))
+                    .toList();
+            for (Meter meter : meters) {
+                generator.writeStartObject();
+                generator.writeStringField("name", meter.getId().getName());
+                generator.writeStringField("type", meter.getId().getType().name().toLowerCase());
+                generator.writeObjectFieldStart("tags");
+                for (Tag tag : meter.getId().getTags()) {
+                    generator.writeStringField(tag.getKey(), tag.getValue());
+                }
+                generator.writeEndObject();
+                for (Measurement measurement : meter.measure()) {
+                    generator.writeNumberField(measurement.getStatistic().getTagValueRepresentation(), measurement.getValue());
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        if (prometheus) {
+            Files.writeString(report.resolveSibling(base + ".prom"), Prometheus.scrape(registry));
+        }
+    }
+
+    // Kept apart so that only a Prometheus run loads the Prometheus registry
+    private static final class Prometheus {
+        static MeterRegistry registry() {
+            return new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        }
+
+        static String scrape(MeterRegistry registry) {
+            return ((PrometheusMeterRegistry) registry).scrape();
+        }
+    }
+
+    private static long allocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads;
+        }
+        return null;
+    }
+}
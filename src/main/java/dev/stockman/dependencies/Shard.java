@@ -0,0 +1,421 @@
+package dev.stockman.dependencies;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serial;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+// The dependencies and vulnerabilities collected by one build agent from its part of the fleet. Shards of any number
+// of agents are merged, in any order and grouping, into the same shard: projects are kept sorted by name, rows in
+// Dependency order with the projects using them, and the vulnerabilities deduplicated in their natural order with
+// one description per CVE. The file holds the projects, a sorted string table per coordinate with the rows as
+// indexes into them and the non-zero words of their project bitsets, then a table of the descriptions referenced by
+// the vulnerabilities.
+public final class Shard {
+    private static final int MAGIC = 0x44525348; // DRSH
+    private static final int FORMAT_VERSION = 2;
+    public static final String SUFFIX = ".shard";
+
+    private static final List<Function<Dependency, String>> COORDINATES = List.of(
+            Dependency::groupId, Dependency::artifactId, Dependency::version, Dependency::packageType, Dependency::scope);
+    private static final Comparator<Vulnerability> BY_FILE_NAME = Comparator
+            .comparing(Vulnerability::fileName, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+
+    private final List<String> projects;
+    private final List<DependencyRow> rows;
+    private final List<Vulnerability> vulnerabilities;
+
+    private Shard(List<String> projects, List<DependencyRow> rows, List<Vulnerability> vulnerabilities) {
+        this.projects = projects;
+        this.rows = rows;
+        this.vulnerabilities = vulnerabilities;
+    }
+
+    public List<String> projects() {
+        return projects;
+    }
+
+    // By Scope rows in Dependency order, their matrices are indexes into projects
+    public List<DependencyRow> rows() {
+        return rows;
+    }
+
+    public List<Vulnerability> vulnerabilities() {
+        return vulnerabilities;
+    }
+
+    // Shard of the dependency CSV and raw OWASP reports written by the collect command
+    public static Shard collect(Path sourceFile, Path owaspFile, Pattern projectsToIgnore, int ingestChunkLines) throws IOException {
+        CoordinateDictionary dictionary = new CoordinateDictionary();
+        List<DependencyRow> rows;
+        List<String> projects;
+        try (DependencyRuns dependencies = DependencyRuns.sort(sourceFile, projectsToIgnore, dictionary, ingestChunkLines)) {
+            projects = dependencies.projects().stream().sorted().toList();
+            rows = DependencyRollup.rollup(dependencies, projects).byScope();
+        }
+        return new Shard(projects, rows, canonical(ReportGenerator.vulnerabilities(owaspFile)));
+    }
+
+    // Shard of the projects of both shards. Rows of the same dependency are combined, a project in both shards keeps
+    // the dependencies of either.
+    public static Shard merge(Shard a, Shard b) {
+        TreeSet<String> union = new TreeSet<>(a.projects);
+        union.addAll(b.projects);
+        List<String> projects = List.copyOf(union);
+        int[] fromA = positions(a.projects, projects);
+        int[] fromB = positions(b.projects, projects);
+
+        List<DependencyRow> rows = new ArrayList<>(Math.max(a.rows.size(), b.rows.size()));
+        int i = 0;
+        int j = 0;
+        while (i < a.rows.size() || j < b.rows.size()) {
+            int order = i == a.rows.size() ? 1 : j == b.rows.size() ? -1
+                    : a.rows.get(i).dependency().compareTo(b.rows.get(j).dependency());
+            if (order < 0) {
+                rows.add(remap(a.rows.get(i++), fromA, projects.size()));
+            } else if (order > 0) {
+                rows.add(remap(b.rows.get(j++), fromB, projects.size()));
+            } else {
+                DependencyRow row = a.rows.get(i++);
+                rows.add(new DependencyRow(row.dependency(), remap(row, fromA, projects.size()).matrix()
+                        .or(remap(b.rows.get(j++), fromB, projects.size()).matrix())));
+            }
+        }
+
+        List<Vulnerability> vulnerabilities = new ArrayList<>(a.vulnerabilities.size() + b.vulnerabilities.size());
+        vulnerabilities.addAll(a.vulnerabilities);
+        vulnerabilities.addAll(b.vulnerabilities);
+        return new Shard(projects, rows, canonical(vulnerabilities));
+    }
+
+    // Reads and merges the shards in a tree, halves of the list are merged in parallel
+    public static Shard merge(List<Path> shards) throws IOException {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        try {
+            return ForkJoinPool.commonPool().invoke(new Reduce(shards, 0, shards.size()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class Reduce extends RecursiveTask<Shard> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        // Tasks are never serialized
+        @SuppressWarnings("serial")
+        private final List<Path> shards;
+        private final int from;
+        private final int to;
+
+        Reduce(List<Path> shards, int from, int to) {
+            this.shards = shards;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Shard compute() {
+            if (to - from == 1) {
+                try {
+                    return read(shards.get(from));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            int middle = (from + to) >>> 1;
+            Reduce left = new Reduce(shards, from, middle);
+            left.fork();
+            Shard right = new Reduce(shards, middle, to).compute();
+            return merge(left.join(), right);
+        }
+    }
+
+    // Position of every project of a shard among the merged projects, both lists are sorted
+    private static int[] positions(List<String> projects, List<String> merged) {
+        int[] positions = new int[projects.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = Collections.binarySearch(merged, projects.get(i));
+        }
+        return positions;
+    }
+
+    private static DependencyRow remap(DependencyRow row, int[] positions, int size) {
+        ProjectMatrix matrix = new ProjectMatrix(size);
+        for (int p = row.matrix().nextSetBit(0); p >= 0; p = row.matrix().nextSetBit(p + 1)) {
+            matrix.set(positions[p]);
+        }
+        return new DependencyRow(row.dependency(), matrix);
+    }
+
+    // Distinct vulnerabilities in their natural order. A CVE reported with different descriptions, e.g. by agents
+    // with different NVD data, keeps the lowest one, so the result does not depend on the order shards are merged in.
+    private static List<Vulnerability> canonical(Collection<Vulnerability> vulnerabilities) {
+        Map<String, String> descriptions = new HashMap<>();
+        for (Vulnerability vulnerability : vulnerabilities) {
+            if (vulnerability.name() != null && vulnerability.description() != null) {
+                descriptions.merge(vulnerability.name(), vulnerability.description(), (x, y) -> x.compareTo(y) <= 0 ? x : y);
+            }
+        }
+        TreeSet<Vulnerability> distinct = new TreeSet<>();
+        for (Vulnerability vulnerability : vulnerabilities) {
+            distinct.add(vulnerability.name() == null ? vulnerability : new Vulnerability(vulnerability.fileName(), vulnerability.name(),
+                    vulnerability.severity(), vulnerability.cvssv3Score(), descriptions.get(vulnerability.name())));
+        }
+        return List.copyOf(distinct);
+    }
+
+    public void write(Path file) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            Snapshot.writeVarInt(output, projects.size());
+            for (String project : projects) {
+                writeText(output, project);
+            }
+
+            List<Map<String, Integer>> ids = new ArrayList<>(COORDINATES.size());
+            for (Function<Dependency, String> coordinate : COORDINATES) {
+                TreeSet<String> values = new TreeSet<>();
+                for (DependencyRow row : rows) {
+                    if (coordinate.apply(row.dependency()) != null) {
+                        values.add(coordinate.apply(row.dependency()));
+                    }
+                }
+                ids.add(writeTable(output, values));
+            }
+            Snapshot.writeVarInt(output, rows.size());
+            for (DependencyRow row : rows) {
+                for (int c = 0; c < COORDINATES.size(); c++) {
+                    writeId(output, ids.get(c), COORDINATES.get(c).apply(row.dependency()));
+                }
+                ProjectMatrix matrix = row.matrix();
+                int words = ProjectMatrix.wordCount(matrix.size());
+                int nonZero = 0;
+                for (int w = 0; w < words; w++) {
+                    nonZero += matrix.word(w) != 0 ? 1 : 0;
+                }
+                Snapshot.writeVarInt(output, nonZero);
+                int last = -1;
+                for (int w = 0; w < words; w++) {
+                    if (matrix.word(w) != 0) {
+                        Snapshot.writeVarInt(output, w - last);
+                        output.writeLong(matrix.word(w));
+                        last = w;
+                    }
+                }
+            }
+
+            TreeSet<String> values = new TreeSet<>();
+            for (Vulnerability vulnerability : vulnerabilities) {
+                if (vulnerability.description() != null) {
+                    values.add(vulnerability.description());
+                }
+            }
+            Map<String, Integer> descriptions = writeTable(output, values);
+            Snapshot.writeVarInt(output, vulnerabilities.size());
+            for (Vulnerability vulnerability : vulnerabilities) {
+                writeNullable(output, vulnerability.fileName());
+                writeNullable(output, vulnerability.name());
+                writeNullable(output, vulnerability.severity());
+                writeNullable(output, vulnerability.cvssv3Score() == null ? null : vulnerability.cvssv3Score().toString());
+                writeId(output, descriptions, vulnerability.description());
+            }
+        }
+    }
+
+    public static Shard read(Path file) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown shard format: " + file);
+            }
+            int size = Snapshot.readVarInt(input);
+            List<String> projects = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                projects.add(readText(input));
+            }
+
+            List<List<String>> tables = new ArrayList<>(COORDINATES.size());
+            for (int c = 0; c < COORDINATES.size(); c++) {
+                tables.add(readTable(input));
+            }
+            int count = Snapshot.readVarInt(input);
+            List<DependencyRow> rows = new ArrayList<>(count);
+            int words = ProjectMatrix.wordCount(projects.size());
+            for (int r = 0; r < count; r++) {
+                Dependency dependency = new Dependency(readId(input, tables.get(0)), readId(input, tables.get(1)),
+                        readId(input, tables.get(2)), readId(input, tables.get(3)), readId(input, tables.get(4)));
+                long[] matrix = new long[words];
+                int nonZero = Snapshot.readVarInt(input);
+                int w = -1;
+                for (int i = 0; i < nonZero; i++) {
+                    w += Snapshot.readVarInt(input);
+                    if (w >= words) {
+                        throw new IOException("Project word out of range in " + file);
+                    }
+                    matrix[w] = input.readLong();
+                }
+                try {
+                    rows.add(new DependencyRow(dependency, ProjectMatrix.of(projects.size(), matrix)));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(e.getMessage() + " in " + file, e);
+                }
+            }
+
+            List<String> descriptions = readTable(input);
+            count = Snapshot.readVarInt(input);
+            List<Vulnerability> vulnerabilities = new ArrayList<>(count);
+            for (int v = 0; v < count; v++) {
+                String fileName = readNullable(input);
+                String name = readNullable(input);
+                String severity = readNullable(input);
+                String score = readNullable(input);
+                vulnerabilities.add(new Vulnerability(fileName, name, severity, score == null ? null : new BigDecimal(score), readId(input, descriptions)));
+            }
+            return new Shard(projects, rows, vulnerabilities);
+        }
+    }
+
+    // Writes the shard back into the report inputs: a dependency CSV and an OWASP report with every vulnerability
+    // listed under its file name
+    public void writeReportInputs(Path sourceFile, Path owaspFile) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(sourceFile)) {
+            for (DependencyRow row : rows) {
+                Dependency dependency = row.dependency();
+                String coordinates = "," + dependency.groupId() + "," + dependency.artifactId() + "," + dependency.version()
+                        + "," + dependency.packageType() + "," + dependency.scope();
+                for (int p = row.matrix().nextSetBit(0); p >= 0; p = row.matrix().nextSetBit(p + 1)) {
+                    writer.write(projects.get(p));
+                    writer.write(coordinates);
+                    writer.newLine();
+                }
+            }
+        }
+
+        List<Vulnerability> byFileName = new ArrayList<>(vulnerabilities);
+        byFileName.sort(BY_FILE_NAME);
+        try (OutputStream output = Files.newOutputStream(owaspFile);
+             JsonGenerator generator = new JsonFactory().createGenerator(output)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("dependencies");
+            for (int i = 0; i < byFileName.size(); ) {
+                String fileName = byFileName.get(i).fileName();
+                generator.writeStartObject();
+                if (fileName != null) {
+                    generator.writeStringField("fileName", fileName);
+                }
+                generator.writeArrayFieldStart("vulnerabilities");
+                for (; i < byFileName.size() && Objects.equals(byFileName.get(i).fileName(), fileName); i++) {
+                    writeVulnerability(generator, byFileName.get(i));
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    // The score is written as text, which the OWASP reader takes as is
+    private static void writeVulnerability(JsonGenerator generator, Vulnerability vulnerability) throws IOException {
+        generator.writeStartObject();
+        if (vulnerability.name() != null) {
+            generator.writeStringField("name", vulnerability.name());
+        }
+        if (vulnerability.severity() != null) {
+            generator.writeStringField("severity", vulnerability.severity());
+        }
+        if (vulnerability.cvssv3Score() != null) {
+            generator.writeObjectFieldStart("cvssv3");
+            generator.writeStringField("baseScore", vulnerability.cvssv3Score().toString());
+            generator.writeEndObject();
+        }
+        if (vulnerability.description() != null) {
+            generator.writeStringField("description", vulnerability.description());
+        }
+        generator.writeEndObject();
+    }
+
+    // Sorted values, referenced by their index + 1 with 0 for null
+    private static Map<String, Integer> writeTable(DataOutputStream output, Collection<String> values) throws IOException {
+        Map<String, Integer> ids = new HashMap<>();
+        Snapshot.writeVarInt(output, values.size());
+        for (String value : values) {
+            writeText(output, value);
+            ids.put(value, ids.size() + 1);
+        }
+        return ids;
+    }
+
+    private static List<String> readTable(DataInputStream input) throws IOException {
+        int size = Snapshot.readVarInt(input);
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readText(input));
+        }
+        return values;
+    }
+
+    private static void writeId(DataOutputStream output, Map<String, Integer> ids, String value) throws IOException {
+        Snapshot.writeVarInt(output, value == null ? 0 : ids.get(value));
+    }
+
+    private static String readId(DataInputStream input, List<String> table) throws IOException {
+        int id = Snapshot.readVarInt(input);
+        if (id > table.size()) {
+            throw new IOException("String index out of range");
+        }
+        return id == 0 ? null : table.get(id - 1);
+    }
+
+    private static void writeNullable(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            writeText(output, value);
+        }
+    }
+
+    private static String readNullable(DataInputStream input) throws IOException {
+        return input.readBoolean() ? readText(input) : null;
+    }
+
+    // UTF-8 bytes after their length, descriptions can exceed the 64 KB of writeUTF
+    private static void writeText(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        Snapshot.writeVarInt(output, bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readText(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[Snapshot.readVarInt(input)];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,227 @@
+package dev.stockman.dependencies;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+// Compact binary copy of one report run, compared with the copy of another run by SnapshotDiff without loading
+// either. It holds the By Scope rows in Dependency order with the projects using them, then the vulnerabilities
+// ordered by file name and CVE. Coordinates equal to those of the previous record are not repeated and project
+// indexes are delta encoded, so a reader only ever holds the current record.
+public final class Snapshot {
+    private static final int MAGIC = 0x44525350; // DRSP
+    private static final int FORMAT_VERSION = 2;
+    private static final String SUFFIX = ".snapshot";
+
+    private static final Comparator<Vulnerability> BY_FILE_AND_NAME = Comparator
+            .comparing(Vulnerability::fileName, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .thenComparing(Vulnerability::name, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+
+    private Snapshot() {}
+
+    // One By Scope row, projects are indexes into the projects of its snapshot
+    record Row(Dependency dependency, int[] projects) {}
+
+    // dependency-report.xlsx -> dependency-report.snapshot next to it
+    public static Path path(Path report) {
+        String fileName = report.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return report.resolveSibling((dot < 0 ? fileName : fileName.substring(0, dot)) + SUFFIX);
+    }
+
+    public static void write(Path file, Rollups rollups, Collection<Vulnerability> vulnerabilities) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            writeVarInt(output, rollups.projects().size());
+            for (String project : rollups.projects()) {
+                output.writeUTF(project);
+            }
+
+            writeVarInt(output, rollups.byScope().size());
+            Dependency previous = null;
+            for (DependencyRow row : rollups.byScope()) {
+                Dependency dependency = row.dependency();
+                int same = previous == null ? 0 : same(previous.groupId(), dependency.groupId(), 1)
+                        | same(previous.artifactId(), dependency.artifactId(), 2)
+                        | same(previous.version(), dependency.version(), 4)
+                        | same(previous.packageType(), dependency.packageType(), 8)
+                        | same(previous.scope(), dependency.scope(), 16);
+                output.writeByte(same);
+                writeString(output, dependency.groupId(), same, 1);
+                writeString(output, dependency.artifactId(), same, 2);
+                writeString(output, dependency.version(), same, 4);
+                writeString(output, dependency.packageType(), same, 8);
+                writeString(output, dependency.scope(), same, 16);
+                ProjectMatrix matrix = row.matrix();
+                writeVarInt(output, matrix.cardinality());
+                int last = -1;
+                for (int i = matrix.nextSetBit(0); i >= 0; i = matrix.nextSetBit(i + 1)) {
+                    writeVarInt(output, i - last);
+                    last = i;
+                }
+                previous = dependency;
+            }
+
+            // One record per file and CVE, the most severe when a CVE was reported with different severities
+            List<Vulnerability> sorted = new ArrayList<>(vulnerabilities);
+            sorted.sort(BY_FILE_AND_NAME.thenComparing(Comparator.naturalOrder()));
+            List<Vulnerability> distinct = new ArrayList<>(sorted.size());
+            for (Vulnerability vulnerability : sorted) {
+                if (distinct.isEmpty() || BY_FILE_AND_NAME.compare(distinct.getLast(), vulnerability) != 0) {
+                    distinct.add(vulnerability);
+                }
+            }
+            writeVarInt(output, distinct.size());
+            String previousFileName = null;
+            for (Vulnerability vulnerability : distinct) {
+                int same = previousFileName != null ? same(previousFileName, vulnerability.fileName(), 1) : 0;
+                output.writeByte(same);
+                writeString(output, vulnerability.fileName(), same, 1);
+                writeString(output, vulnerability.name(), 0, 1);
+                writeString(output, vulnerability.severity(), 0, 1);
+                writeString(output, vulnerability.cvssv3Score() == null ? null : vulnerability.cvssv3Score().toString(), 0, 1);
+                previousFileName = vulnerability.fileName();
+            }
+        }
+    }
+
+    // Reads the rows first, then the vulnerabilities, one record at a time
+    static final class Reader implements Closeable {
+        private final DataInputStream input;
+        private final List<String> projects;
+        private int rows;
+        private int vulnerabilities = -1;
+        private Dependency previous;
+        private String previousFileName;
+
+        Reader(Path file) throws IOException {
+            input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+            try {
+                if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+                    throw new IOException("Unknown snapshot format: " + file);
+                }
+                int size = readVarInt(input);
+                projects = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    projects.add(input.readUTF());
+                }
+                rows = readVarInt(input);
+            } catch (IOException e) {
+                input.close();
+                throw e;
+            }
+        }
+
+        List<String> projects() {
+            return projects;
+        }
+
+        // Next By Scope row, null after the last one
+        Row nextRow() throws IOException {
+            if (rows == 0) {
+                return null;
+            }
+            rows--;
+            int same = input.readUnsignedByte();
+            Dependency dependency = new Dependency(
+                    readString(input, same, 1, previous == null ? null : previous.groupId()),
+                    readString(input, same, 2, previous == null ? null : previous.artifactId()),
+                    readString(input, same, 4, previous == null ? null : previous.version()),
+                    readString(input, same, 8, previous == null ? null : previous.packageType()),
+                    readString(input, same, 16, previous == null ? null : previous.scope()));
+            int[] indexes = new int[readVarInt(input)];
+            int last = -1;
+            for (int i = 0; i < indexes.length; i++) {
+                last += readVarInt(input);
+                if (last >= projects.size()) {
+                    throw new IOException("Project index out of range");
+                }
+                indexes[i] = last;
+            }
+            previous = dependency;
+            return new Row(dependency, indexes);
+        }
+
+        // Next vulnerability, without description, null after the last one. Skips the rows not read yet.
+        Vulnerability nextVulnerability() throws IOException {
+            while (nextRow() != null) {
+                // Rows are skipped
+            }
+            if (vulnerabilities < 0) {
+                vulnerabilities = readVarInt(input);
+            }
+            if (vulnerabilities == 0) {
+                return null;
+            }
+            vulnerabilities--;
+            int same = input.readUnsignedByte();
+            String fileName = readString(input, same, 1, previousFileName);
+            String name = readString(input, 0, 1, null);
+            String severity = readString(input, 0, 1, null);
+            String score = readString(input, 0, 1, null);
+            previousFileName = fileName;
+            return new Vulnerability(fileName, name, severity, score == null ? null : new BigDecimal(score), null);
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+
+    private static int same(String previous, String current, int flag) {
+        return Objects.equals(previous, current) ? flag : 0;
+    }
+
+    private static void writeString(DataOutputStream output, String value, int same, int flag) throws IOException {
+        if ((same & flag) != 0) {
+            return;
+        }
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream input, int same, int flag, String previous) throws IOException {
+        if ((same & flag) != 0) {
+            return previous;
+        }
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    static void writeVarInt(DataOutputStream output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    static int readVarInt(DataInputStream input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    throw new IOException("Negative size");
+                }
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,228 @@
+package dev.stockman.dependencies;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Changes between two snapshots as a JSON delta, streamed with a merge-join of their rows in Dependency order and of
+// their vulnerabilities in file name and CVE order. Only the current row of each snapshot and the rows of the current
+// artifact are held, so memory does not grow with the size of the snapshots.
+//
+// Changes are "added" and "removed" rows, "projects" for rows whose projects changed and "versionDrift" for a project
+// that moved from some versions of an artifact to others. Vulnerabilities are "introduced", "resolved" or "rescored"
+// when their severity or CVSSv3 score changed.
+public final class SnapshotDiff {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private SnapshotDiff() {}
+
+    public static void diff(Path from, Path to, Path output) throws IOException {
+        try (Snapshot.Reader before = new Snapshot.Reader(from);
+             Snapshot.Reader after = new Snapshot.Reader(to);
+             OutputStream file = Files.newOutputStream(output);
+             JsonGenerator generator = JSON_FACTORY.createGenerator(file).useDefaultPrettyPrinter()) {
+            generator.writeStartObject();
+            generator.writeStringField("from", from.toString());
+            generator.writeStringField("to", to.toString());
+
+            generator.writeObjectFieldStart("projects");
+            writeDifference(generator, "added", after.projects(), new HashSet<>(before.projects()));
+            writeDifference(generator, "removed", before.projects(), new HashSet<>(after.projects()));
+            generator.writeEndObject();
+
+            generator.writeArrayFieldStart("changes");
+            diffRows(before, after, generator);
+            generator.writeEndArray();
+
+            generator.writeArrayFieldStart("vulnerabilities");
+            diffVulnerabilities(before, after, generator);
+            generator.writeEndArray();
+
+            generator.writeEndObject();
+        }
+    }
+
+    private static void diffRows(Snapshot.Reader before, Snapshot.Reader after, JsonGenerator generator) throws IOException {
+        Drift drift = new Drift();
+        Snapshot.Row old = before.nextRow();
+        Snapshot.Row current = after.nextRow();
+        while (old != null || current != null) {
+            int comparison = old == null ? 1 : current == null ? -1 : old.dependency().compareTo(current.dependency());
+            drift.next(comparison <= 0 ? old.dependency() : current.dependency(), generator);
+            if (comparison < 0) {
+                List<String> projects = names(old.projects(), before.projects());
+                writeRow(generator, "removed", old.dependency());
+                writeNames(generator, "projects", projects);
+                generator.writeEndObject();
+                drift.lost(old.dependency(), projects);
+                old = before.nextRow();
+            } else if (comparison > 0) {
+                List<String> projects = names(current.projects(), after.projects());
+                writeRow(generator, "added", current.dependency());
+                writeNames(generator, "projects", projects);
+                generator.writeEndObject();
+                drift.gained(current.dependency(), projects);
+                current = after.nextRow();
+            } else {
+                List<String> oldProjects = names(old.projects(), before.projects());
+                List<String> currentProjects = names(current.projects(), after.projects());
+                List<String> added = difference(currentProjects, new HashSet<>(oldProjects));
+                List<String> removed = difference(oldProjects, new HashSet<>(currentProjects));
+                if (!added.isEmpty() || !removed.isEmpty()) {
+                    writeRow(generator, "projects", current.dependency());
+                    writeNames(generator, "added", added);
+                    writeNames(generator, "removed", removed);
+                    generator.writeEndObject();
+                    drift.gained(current.dependency(), added);
+                    drift.lost(current.dependency(), removed);
+                }
+                old = before.nextRow();
+                current = after.nextRow();
+            }
+        }
+        drift.next(null, generator);
+    }
+
+    private static void diffVulnerabilities(Snapshot.Reader before, Snapshot.Reader after, JsonGenerator generator) throws IOException {
+        Comparator<Vulnerability> order = Comparator
+                .comparing(Vulnerability::fileName, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                .thenComparing(Vulnerability::name, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+        Vulnerability old = before.nextVulnerability();
+        Vulnerability current = after.nextVulnerability();
+        while (old != null || current != null) {
+            int comparison = old == null ? 1 : current == null ? -1 : order.compare(old, current);
+            if (comparison < 0) {
+                writeVulnerability(generator, "resolved", old);
+                old = before.nextVulnerability();
+            } else if (comparison > 0) {
+                writeVulnerability(generator, "introduced", current);
+                current = after.nextVulnerability();
+            } else {
+                if (!Objects.equals(old.severity(), current.severity()) || !Objects.equals(old.cvssv3Score(), current.cvssv3Score())) {
+                    writeVulnerability(generator, "rescored", current);
+                }
+                old = before.nextVulnerability();
+                current = after.nextVulnerability();
+            }
+        }
+    }
+
+    // Versions each project lost and gained within one artifact, reported once the merge moves past the artifact.
+    // Test rows come after all others in Dependency order, so they form groups of their own.
+    private static final class Drift {
+        private Dependency artifact;
+        private final Map<String, TreeSet<String>> lost = new LinkedHashMap<>();
+        private final Map<String, TreeSet<String>> gained = new LinkedHashMap<>();
+
+        void next(Dependency dependency, JsonGenerator generator) throws IOException {
+            if (artifact != null && dependency != null && artifact.compareArtifact(dependency) == 0 && "test".equals(artifact.scope()) == "test".equals(dependency.scope())) {
+                return;
+            }
+            for (Map.Entry<String, TreeSet<String>> entry : lost.entrySet()) {
+                TreeSet<String> versions = gained.get(entry.getKey());
+                if (versions != null) {
+                    TreeSet<String> from = new TreeSet<>(entry.getValue());
+                    from.removeAll(versions);
+                    TreeSet<String> to = new TreeSet<>(versions);
+                    to.removeAll(entry.getValue());
+                    if (!from.isEmpty() && !to.isEmpty()) {
+                        generator.writeStartObject();
+                        generator.writeStringField("type", "versionDrift");
+                        generator.writeStringField("project", entry.getKey());
+                        generator.writeStringField("groupId", artifact.groupId());
+                        generator.writeStringField("artifactId", artifact.artifactId());
+                        writeNames(generator, "from", new ArrayList<>(from));
+                        writeNames(generator, "to", new ArrayList<>(to));
+                        generator.writeEndObject();
+                    }
+                }
+            }
+            lost.clear();
+            gained.clear();
+            artifact = dependency;
+        }
+
+        void lost(Dependency dependency, List<String> projects) {
+            add(lost, dependency, projects);
+        }
+
+        void gained(Dependency dependency, List<String> projects) {
+            add(gained, dependency, projects);
+        }
+
+        private static void add(Map<String, TreeSet<String>> versions, Dependency dependency, List<String> projects) {
+            if (dependency.version() == null) {
+                return;
+            }
+            for (String project : projects) {
+                versions.computeIfAbsent(project, p -> new TreeSet<>()).add(dependency.version());
+            }
+        }
+    }
+
+    // Starts the object of a row change, the caller adds the project fields and ends it
+    private static void writeRow(JsonGenerator generator, String type, Dependency dependency) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", type);
+        generator.writeStringField("groupId", dependency.groupId());
+        generator.writeStringField("artifactId", dependency.artifactId());
+        generator.writeStringField("version", dependency.version());
+        generator.writeStringField("packageType", dependency.packageType());
+        generator.writeStringField("scope", dependency.scope());
+    }
+
+    private static void writeVulnerability(JsonGenerator generator, String type, Vulnerability vulnerability) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", type);
+        generator.writeStringField("fileName", vulnerability.fileName());
+        generator.writeStringField("name", vulnerability.name());
+        generator.writeStringField("severity", vulnerability.severity());
+        if (vulnerability.cvssv3Score() != null) {
+            generator.writeNumberField("cvssv3Score", vulnerability.cvssv3Score());
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeDifference(JsonGenerator generator, String field, List<String> values, Set<String> excluded) throws IOException {
+        writeNames(generator, field, difference(values, excluded));
+    }
+
+    private static void writeNames(JsonGenerator generator, String field, List<String> names) throws IOException {
+        generator.writeArrayFieldStart(field);
+        for (String name : names) {
+            generator.writeString(name);
+        }
+        generator.writeEndArray();
+    }
+
+    private static List<String> names(int[] indexes, List<String> projects) {
+        List<String> names = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            names.add(projects.get(index));
+        }
+        return names;
+    }
+
+    private static List<String> difference(List<String> values, Set<String> excluded) {
+        List<String> difference = new ArrayList<>();
+        for (String value : values) {
+            if (!excluded.contains(value)) {
+                difference.add(value);
+            }
+        }
+        return difference;
+    }
+}
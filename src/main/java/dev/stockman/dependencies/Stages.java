@@ -0,0 +1,44 @@
+package dev.stockman.dependencies;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// The stages of a report run that overlap: each runs on its own thread and hands its result over as a Future.
+// Stages are CPU bound and few, so they get platform threads, on which the run profile can also measure allocations.
+final class Stages {
+    private Stages() {}
+
+    static ExecutorService executor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofPlatform().name("report-stage-", 0).factory());
+    }
+
+    // Result of a stage, its failure rethrown as it was thrown where possible
+    static <T> T join(Future<T> stage) throws IOException {
+        try {
+            return stage.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a report stage");
+        }
+    }
+}
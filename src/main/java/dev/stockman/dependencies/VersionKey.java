@@ -0,0 +1,274 @@
+package dev.stockman.dependencies;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Sort key of a version in the order of Maven's ComparableVersion: 2.9.1 < 2.10.0, 1.0-alpha-1 < 1.0-rc1 <
+// 1.0-SNAPSHOT < 1.0 = 1.0.0 = 1.0-ga < 1.0-sp1 < 1.0.1, as of maven-artifact 3.9. The version is split into
+// numbers and qualifiers at '.', '-' and between digits and letters once, when it is first interned; '-', the
+// switches between digits and letters and a qualifier after '.' open a nested list. Numbers and known qualifiers
+// become longs, so comparing two keys compares primitive arrays and only falls back to Strings for unknown
+// qualifiers and numbers of more than 18 digits.
+public final class VersionKey implements Comparable<VersionKey> {
+    private static final byte NUMBER = 0;
+    private static final byte QUALIFIER = 1;
+    private static final byte LIST = 2;
+
+    // Ranks of the known qualifiers, a release ranks as the empty qualifier and unknown qualifiers after sp
+    private static final List<String> QUALIFIERS = List.of("alpha", "beta", "milestone", "rc", "snapshot", "", "sp");
+    private static final Map<String, String> ALIASES = Map.of("ga", "", "final", "", "release", "", "cr", "rc");
+    private static final int RELEASE = QUALIFIERS.indexOf("");
+    private static final int UNKNOWN = QUALIFIERS.size();
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private final String version;
+    private final Items items;
+
+    private VersionKey(String version, Items items) {
+        this.version = version;
+        this.items = items;
+    }
+
+    // Key of the version, null for a null version
+    public static VersionKey of(String version) {
+        return version == null ? null : new VersionKey(version, parse(version));
+    }
+
+    public String version() {
+        return version;
+    }
+
+    // Zero for versions Maven considers equal even when they are written differently, such as 1.0 and 1
+    @Override
+    public int compareTo(VersionKey other) {
+        return items.compareTo(other.items);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof VersionKey other && version.equals(other.version);
+    }
+
+    @Override
+    public int hashCode() {
+        return version.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return version;
+    }
+
+    private static Items parse(String version) {
+        String lower = version.toLowerCase(Locale.ROOT);
+        Builder root = new Builder();
+        Builder list = root;
+        Deque<Builder> lists = new ArrayDeque<>();
+        lists.push(list);
+        boolean digit = false;
+        int start = 0;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (c == '.' || c == '-') {
+                if (i == start) {
+                    list.number("0");
+                } else {
+                    list.item(digit, lower.substring(start, i), false);
+                }
+                start = i + 1;
+                if (c == '-') {
+                    list = list.list();
+                    lists.push(list);
+                }
+            } else if (Character.isDigit(c)) {
+                if (!digit && i > start) {
+                    // A qualifier after '.' opens a list as after '-', so 1.0.0.x1 < 1.0.0-x2
+                    if (!list.kinds.isEmpty()) {
+                        list = list.list();
+                        lists.push(list);
+                    }
+                    list.item(false, lower.substring(start, i), true);
+                    start = i;
+                    list = list.list();
+                    lists.push(list);
+                }
+                digit = true;
+            } else {
+                if (digit && i > start) {
+                    list.item(true, lower.substring(start, i), false);
+                    start = i;
+                    list = list.list();
+                    lists.push(list);
+                }
+                digit = false;
+            }
+        }
+        if (lower.length() > start) {
+            if (!digit && !list.kinds.isEmpty()) {
+                list = list.list();
+                lists.push(list);
+            }
+            list.item(digit, lower.substring(start), false);
+        }
+        // Innermost lists first, so a list emptied by its normalization is itself dropped by its parent
+        while (!lists.isEmpty()) {
+            lists.pop().normalize();
+        }
+        return root.build();
+    }
+
+    // Items of a list while it is parsed: numbers hold their value or, beyond a long, their digits; qualifiers their
+    // rank or, when unknown, their text
+    private static final class Builder {
+        private final List<Byte> kinds = new ArrayList<>();
+        private final List<Long> values = new ArrayList<>();
+        private final List<Object> references = new ArrayList<>();
+
+        void item(boolean digit, String text, boolean followedByDigit) {
+            if (digit) {
+                number(text);
+            } else {
+                qualifier(text, followedByDigit);
+            }
+        }
+
+        void number(String digits) {
+            int first = 0;
+            while (first < digits.length() - 1 && digits.charAt(first) == '0') {
+                first++;
+            }
+            String stripped = digits.substring(first);
+            boolean small = stripped.length() <= MAX_LONG_DIGITS;
+            add(NUMBER, small ? Long.parseLong(stripped) : -1, small ? null : stripped);
+        }
+
+        // a1, b1 and m1 stand for alpha-1, beta-1 and milestone-1
+        void qualifier(String text, boolean followedByDigit) {
+            if (followedByDigit && text.length() == 1) {
+                text = switch (text.charAt(0)) {
+                    case 'a' -> "alpha";
+                    case 'b' -> "beta";
+                    case 'm' -> "milestone";
+                    default -> text;
+                };
+            }
+            text = ALIASES.getOrDefault(text, text);
+            int rank = QUALIFIERS.indexOf(text);
+            add(QUALIFIER, rank < 0 ? UNKNOWN : rank, rank < 0 ? text : null);
+        }
+
+        Builder list() {
+            Builder list = new Builder();
+            add(LIST, 0, list);
+            return list;
+        }
+
+        private void add(byte kind, long value, Object reference) {
+            kinds.add(kind);
+            values.add(value);
+            references.add(reference);
+        }
+
+        // Drops the trailing zeros, release qualifiers and empty lists, e.g. 1.0.0 -> 1 and 1.0-ga -> 1, also before
+        // the nested lists at the end as ComparableVersion does
+        void normalize() {
+            for (int i = kinds.size() - 1; i >= 0; i--) {
+                if (isNull(i)) {
+                    kinds.remove(i);
+                    values.remove(i);
+                    references.remove(i);
+                } else if (kinds.get(i) != LIST) {
+                    break;
+                }
+            }
+        }
+
+        private boolean isNull(int i) {
+            return switch (kinds.get(i)) {
+                case NUMBER -> values.get(i) == 0;
+                case QUALIFIER -> values.get(i) == RELEASE;
+                default -> ((Builder) references.get(i)).kinds.isEmpty();
+            };
+        }
+
+        Items build() {
+            byte[] builtKinds = new byte[kinds.size()];
+            long[] builtValues = new long[kinds.size()];
+            Object[] builtReferences = new Object[kinds.size()];
+            for (int i = 0; i < builtKinds.length; i++) {
+                builtKinds[i] = kinds.get(i);
+                builtValues[i] = values.get(i);
+                Object reference = references.get(i);
+                builtReferences[i] = reference instanceof Builder list ? list.build() : reference;
+            }
+            return new Items(builtKinds, builtValues, builtReferences);
+        }
+    }
+
+    // A parsed list: kinds[i] tells whether item i is a number, a qualifier or a nested list, values[i] holds the
+    // number or the rank of the qualifier, references[i] the nested list, the digits of a number beyond a long or
+    // the text of an unknown qualifier
+    private record Items(byte[] kinds, long[] values, Object[] references) {
+        // Items missing from the shorter list compare as zero, as in 1.0 = 1 and 1.0-alpha < 1
+        int compareTo(Items other) {
+            int size = Math.max(kinds.length, other.kinds.length);
+            for (int i = 0; i < size; i++) {
+                int result = i >= kinds.length ? -other.compareToMissing(i)
+                        : i >= other.kinds.length ? compareToMissing(i)
+                        : compare(i, other, i);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return 0;
+        }
+
+        // Numbers sort after lists, which sort after qualifiers: 1.1 > 1-1 > 1-sp
+        private int compare(int i, Items other, int j) {
+            if (kinds[i] != other.kinds[j]) {
+                return kinds[i] == NUMBER || (kinds[i] == LIST && other.kinds[j] == QUALIFIER) ? 1 : -1;
+            }
+            return switch (kinds[i]) {
+                case NUMBER -> references[i] == null && other.references[j] == null
+                        ? Long.compare(values[i], other.values[j])
+                        : compareDigits(digits(i), other.digits(j));
+                case QUALIFIER -> values[i] != UNKNOWN || other.values[j] != UNKNOWN
+                        ? Long.compare(values[i], other.values[j])
+                        : ((String) references[i]).compareTo((String) other.references[j]);
+                default -> ((Items) references[i]).compareTo((Items) other.references[j]);
+            };
+        }
+
+        // Against a missing item a number counts unless it is zero, a qualifier by its rank against a release and a
+        // nested list by its first item that is not null, so 1.0-0.1 > 1.0
+        private int compareToMissing(int i) {
+            return switch (kinds[i]) {
+                case NUMBER -> references[i] != null || values[i] != 0 ? 1 : 0;
+                case QUALIFIER -> Long.compare(values[i], RELEASE);
+                default -> ((Items) references[i]).compareToMissing();
+            };
+        }
+
+        private int compareToMissing() {
+            for (int i = 0; i < kinds.length; i++) {
+                int result = compareToMissing(i);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return 0;
+        }
+
+        private String digits(int i) {
+            return references[i] != null ? (String) references[i] : Long.toString(values[i]);
+        }
+
+        private static int compareDigits(String a, String b) {
+            return a.length() != b.length() ? Integer.compare(a.length(), b.length()) : a.compareTo(b);
+        }
+    }
+}
@@ -5,6 +5,9 @@ import java.util.Arrays;
 import java.util.List;
 
 public record Vulnerability(String fileName, String name, String severity, BigDecimal cvssv3Score, String description) implements Comparable<Vulnerability> {
+    // Severity ranking order, also the order of the severity sections in the reports
+    static final List<String> SEVERITY_ORDER = Arrays.asList("CRITICAL", "HIGH", "MEDIUM", "LOW", "NONE");
+
     @Override
     public int compareTo(Vulnerability o) {
         if (o == null) return -1; // Null objects are considered greater
@@ -61,17 +64,15 @@ public record Vulnerability(String fileName, String name, String severity, BigDe
         return score2.compareTo(score1);
     }
     private int compareSeverity(String severity1, String severity2) {
-        // Severity ranking order
-        List<String> severityOrder = Arrays.asList("CRITICAL", "HIGH", "MEDIUM", "LOW", "NONE");
+        return Integer.compare(severityRank(severity1), severityRank(severity2));
+    }
 
+    // Position of the severity in CRITICAL, HIGH, MEDIUM, LOW, NONE; unknown values rank with NONE and null after it
+    static int severityRank(String severity) {
         // Find index in ranking order, or rank "beyond" known values
-        int rank1 = severity1 == null ? severityOrder.size() : severityOrder.indexOf(severity1);
-        int rank2 = severity2 == null ? severityOrder.size() : severityOrder.indexOf(severity2);
+        int rank = severity == null ? SEVERITY_ORDER.size() : SEVERITY_ORDER.indexOf(severity);
 
         // Handle unknown values by placing them after known severities
-        rank1 = rank1 == -1 ? severityOrder.size() - 1 : rank1;
-        rank2 = rank2 == -1 ? severityOrder.size() - 1 : rank2;
-
-        return Integer.compare(rank1, rank2);
+        return rank == -1 ? SEVERITY_ORDER.size() - 1 : rank;
     }
 }
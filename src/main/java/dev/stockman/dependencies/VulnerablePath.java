@@ -0,0 +1,11 @@
+package dev.stockman.dependencies;
+
+import java.util.List;
+
+// Shortest chain of dependencies through which a project pulls in a By Scope row with a CRITICAL or HIGH finding,
+// from the direct dependency of the project down to the vulnerable one
+public record VulnerablePath(String project, DependencyRow row, List<Dependency> path) {
+    public Dependency direct() {
+        return path.getFirst();
+    }
+}
@@ -0,0 +1,77 @@
+package dev.stockman.dependencies;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DependencyRunsTest {
+    private static final Pattern PROJECTS_TO_IGNORE = Pattern.compile("ignored-.*");
+    private static final String[] VERSIONS = {"1.0", "1.10", "1.9", "2.0-SNAPSHOT", "2.0", "10.0.1-jre"};
+    private static final String[] SCOPES = {"compile", "runtime", "provided", "test"};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void streamsAsOneRunWhenSpilledToManyRuns() throws IOException {
+        // Lines of varying length, so the ranges end in the middle of lines, with repeated lines, CRLF line ends,
+        // a blank line and an ignored project
+        Random random = new Random(42);
+        StringBuilder csv = new StringBuilder();
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            String line = random.nextInt(8) == 0 && !lines.isEmpty()
+                    ? lines.get(random.nextInt(lines.size()))
+                    : String.join(",", random.nextInt(20) == 0 ? "ignored-" + i : "project-" + random.nextInt(12),
+                    "org.example" + ".sub".repeat(random.nextInt(4)), "artifact-" + random.nextInt(15), VERSIONS[random.nextInt(VERSIONS.length)],
+                    "jar", SCOPES[random.nextInt(SCOPES.length)]);
+            lines.add(line);
+            csv.append(line).append(random.nextInt(5) == 0 ? "\r\n" : "\n");
+            if (i == 200) {
+                csv.append("\n");
+            }
+        }
+        Path file = Files.writeString(directory.resolve("dependencies.csv"), csv, StandardCharsets.UTF_8);
+
+        List<DependencyRaw> single;
+        Rollups singleRollups;
+        try (DependencyRuns runs = DependencyRuns.sort(file, PROJECTS_TO_IGNORE, new CoordinateDictionary(), Integer.MAX_VALUE)) {
+            assertEquals(0, runs.spilledRuns());
+            single = drain(runs);
+        }
+        try (DependencyRuns runs = DependencyRuns.sort(file, PROJECTS_TO_IGNORE, new CoordinateDictionary(), Integer.MAX_VALUE)) {
+            singleRollups = DependencyRollup.rollup(runs, runs.projects());
+        }
+
+        List<DependencyRaw> spilled;
+        Rollups spilledRollups;
+        try (DependencyRuns runs = DependencyRuns.sort(file, PROJECTS_TO_IGNORE, new CoordinateDictionary(), 3)) {
+            // More runs than are merged at once, so they are merged in groups first
+            assertTrue(runs.spilledRuns() > 64, "Expected more than 64 runs but got " + runs.spilledRuns());
+            spilled = drain(runs);
+        }
+        try (DependencyRuns runs = DependencyRuns.sort(file, PROJECTS_TO_IGNORE, new CoordinateDictionary(), 3)) {
+            spilledRollups = DependencyRollup.rollup(runs, runs.projects());
+        }
+
+        assertEquals(single, spilled);
+        assertEquals(singleRollups, spilledRollups);
+    }
+
+    private static List<DependencyRaw> drain(DependencyRuns runs) {
+        List<DependencyRaw> dependencies = new ArrayList<>();
+        runs.forEachRemaining(dependencies::add);
+        return dependencies;
+    }
+}
@@ -0,0 +1,71 @@
+package dev.stockman.dependencies;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OwaspFanOutTest {
+    private static final String JACKSON = "[{\"name\":\"CVE-2019-12384\",\"severity\":\"HIGH\",\"cvssv3\":{\"baseScore\":8.1},\"description\":\"jackson\"}]";
+    private static final String SNAKEYAML = "[{\"name\":\"CVE-2022-1471\",\"severity\":\"CRITICAL\",\"cvssv3\":{\"baseScore\":9.8},\"description\":\"snakeyaml\"}]";
+
+    @Test
+    void handsEveryProjectTheFindingsOfTheArtifactsItUses() throws Exception {
+        StubArtifactScanner scanner = new StubArtifactScanner(Map.of(
+                "jackson-databind-2.9.0.jar", JACKSON,
+                "snakeyaml-1.30.jar", SNAKEYAML));
+        List<CollectedProject> projects = List.of(
+                project("alpha", "com.fasterxml.jackson.core,jackson-databind,2.9.0,jar,compile", "org.yaml,snakeyaml,1.30,jar,compile"),
+                project("beta", "com.fasterxml.jackson.core,jackson-databind,2.9.0,jar,runtime", "com.google.guava,guava,31.1-jre,jar,compile"),
+                project("gamma", "junit,junit,4.12,jar,test"));
+
+        OwaspFanOut.Scanned result = OwaspFanOut.scan(scanner, projects);
+        List<CollectedProject> scanned = result.projects();
+
+        // jackson-databind is used by two projects in two scopes but scanned once
+        assertEquals(4, scanner.scanned().size());
+        assertEquals(Set.of(), result.failed());
+        assertEquals(Set.of("CVE-2019-12384", "CVE-2022-1471"), cves(scanned.get(0)));
+        assertEquals(Set.of("CVE-2019-12384"), cves(scanned.get(1)));
+        assertEquals(List.of(), scanned.get(2).vulnerabilityReports());
+        for (int i = 0; i < projects.size(); i++) {
+            assertEquals(projects.get(i).project(), scanned.get(i).project());
+            assertEquals(projects.get(i).dependencies(), scanned.get(i).dependencies());
+            assertEquals(projects.get(i).edges(), scanned.get(i).edges());
+        }
+    }
+
+    @Test
+    void reportsTheProjectsUsingAnArtifactWhoseScanFailed() throws Exception {
+        StubArtifactScanner scanner = new StubArtifactScanner(Map.of("jackson-databind-2.9.0.jar", JACKSON), Set.of("guava-31.1-jre.jar"));
+        List<CollectedProject> projects = List.of(
+                project("alpha", "com.fasterxml.jackson.core,jackson-databind,2.9.0,jar,compile"),
+                project("beta", "com.fasterxml.jackson.core,jackson-databind,2.9.0,jar,runtime", "com.google.guava,guava,31.1-jre,jar,compile"));
+
+        OwaspFanOut.Scanned result = OwaspFanOut.scan(scanner, projects);
+
+        // beta keeps the findings of the artifacts that were scanned
+        assertEquals(Set.of("beta"), result.failed());
+        assertEquals(Set.of("CVE-2019-12384"), cves(result.projects().get(0)));
+        assertEquals(Set.of("CVE-2019-12384"), cves(result.projects().get(1)));
+    }
+
+    private static CollectedProject project(String name, String... dependencies) {
+        return new CollectedProject(name, Arrays.stream(dependencies).map(line -> name + "," + line).toList(), List.of(name + ",,edge"), List.of());
+    }
+
+    private static Set<String> cves(CollectedProject project) throws Exception {
+        Set<String> cves = new TreeSet<>();
+        for (String report : project.vulnerabilityReports()) {
+            OwaspTransformer.stream(new ByteArrayInputStream(report.getBytes(StandardCharsets.UTF_8)), vulnerability -> cves.add(vulnerability.name()));
+        }
+        return cves;
+    }
+}
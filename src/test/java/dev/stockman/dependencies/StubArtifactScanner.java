@@ -0,0 +1,47 @@
+package dev.stockman.dependencies;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Scanner answering from canned findings instead of running dependency-check. Every artifact scanned gets a
+// dependency block in the report, with the vulnerabilities held for its file name or none, except the artifacts
+// whose file name is set to fail, which are returned as failed.
+final class StubArtifactScanner implements ArtifactScanner {
+    private final Map<String, String> vulnerabilitiesByFileName;
+    private final Set<String> failingFileNames;
+    private final List<Dependency> scanned = new ArrayList<>();
+
+    StubArtifactScanner(Map<String, String> vulnerabilitiesByFileName) {
+        this(vulnerabilitiesByFileName, Set.of());
+    }
+
+    StubArtifactScanner(Map<String, String> vulnerabilitiesByFileName, Set<String> failingFileNames) {
+        this.vulnerabilitiesByFileName = vulnerabilitiesByFileName;
+        this.failingFileNames = failingFileNames;
+    }
+
+    @Override
+    public Result scan(Collection<Dependency> artifacts) {
+        scanned.addAll(artifacts);
+        List<String> dependencies = new ArrayList<>();
+        Set<Dependency> failed = new LinkedHashSet<>();
+        for (Dependency artifact : artifacts) {
+            if (failingFileNames.contains(artifact.fileName())) {
+                failed.add(artifact);
+                continue;
+            }
+            dependencies.add("{\"fileName\":\"" + artifact.fileName() + "\",\"vulnerabilities\":"
+                    + vulnerabilitiesByFileName.getOrDefault(artifact.fileName(), "[]") + "}");
+        }
+        return new Result(List.of("{\"dependencies\":[" + String.join(",", dependencies) + "]}"), failed);
+    }
+
+    // Artifacts of every scan so far, in the order they were handed in
+    List<Dependency> scanned() {
+        return scanned;
+    }
+}
@@ -0,0 +1,45 @@
+package dev.stockman.dependencies;
+
+import org.apache.maven.artifact.versioning.ComparableVersion;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VersionKeyTest {
+    // Versions as they show up in the fleet, plus the corner cases of ComparableVersion: qualifiers after '.' and
+    // '-', aliases, single letter qualifiers, nested lists of zeros and numbers beyond an int and a long
+    private static final List<String> VERSIONS = List.of(
+            "1", "1.0", "1.0.0", "1.0.1", "1.1", "1-1", "1.0-1", "1.0-0.1", "1.0-0.0", "1.0-0", "1-0.1", "1.0.0-0.0.1",
+            "2.9.1", "2.10.0", "2.15.0", "2.15", "6.1.2", "6.1.10",
+            "1.0-alpha-1", "1.0-alpha1", "1.0-a1", "1.0-alpha-2", "1.0-beta-1", "1.0-b1", "1.0-milestone-1", "1.0-m1",
+            "1.0-rc1", "1.0-RC1", "1.0-cr1", "1.0-rc-2", "1.0-SNAPSHOT", "1.0-ga", "1.0-final", "1.0.Final",
+            "1.0.RELEASE", "1.0-release", "1.0-sp", "1.0-sp1", "1.0-foo", "1.0.foo", "1.0-bar", "1.0.0.x1", "1.0.0-x2",
+            "1-sp", "1.any", "1.0.0.M2", "5.0.0.M2", "5.0.0-RC1", "5.0.0.RC2", "5.0.0.RELEASE", "5.0.0",
+            "2.0.0.RELEASE", "2.0.1.RELEASE", "1.2.3.Final", "1.2.3-jre", "31.1-jre", "31.1-android", "0.0.1",
+            "01", "1.00", "-1", "1..1", "1.0-", "999999999", "1000000000", "99999999999999999999",
+            "100000000000000000000", "1.0.0-alpha.beta", "1.0.0-beta.11", "1.0.0-rc.1", "r09", "1.0a", "1.0b2");
+
+    @Test
+    void ordersVersionsAsComparableVersion() {
+        List<String> mismatches = new ArrayList<>();
+        for (String a : VERSIONS) {
+            for (String b : VERSIONS) {
+                int expected = Integer.signum(new ComparableVersion(a).compareTo(new ComparableVersion(b)));
+                int actual = Integer.signum(VersionKey.of(a).compareTo(VersionKey.of(b)));
+                if (expected != actual) {
+                    mismatches.add(a + " vs " + b + ": expected " + expected + " but was " + actual);
+                }
+            }
+        }
+        assertEquals(List.of(), mismatches);
+    }
+
+    @Test
+    void keepsTheTextOfTheVersion() {
+        assertEquals("1.0-SNAPSHOT", VersionKey.of("1.0-SNAPSHOT").version());
+        assertEquals(null, VersionKey.of(null));
+    }
+}